@@ -54,6 +54,7 @@ dependencies {
     implementation ("com.squareup.retrofit2:converter-gson:2.9.0")
     implementation ("com.squareup.retrofit2:converter-scalars:2.9.0")
     implementation ("com.squareup.okhttp3:okhttp:4.9.1")
+    implementation ("com.squareup.okhttp3:okhttp-sse:4.9.1")
     implementation ("com.squareup.okhttp3:logging-interceptor:5.0.0-alpha.3")
     implementation ("com.squareup.retrofit2:adapter-rxjava2:2.9.0")
     implementation ("com.google.android.exoplayer:exoplayer:2.19.0")
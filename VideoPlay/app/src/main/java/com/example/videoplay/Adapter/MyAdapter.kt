@@ -30,7 +30,9 @@ class MyAdapter(private var videoList: List<VideoData>) :
             videoTitle.text = video.title
             videoDescription.text = video.description
 
-            val thumbnailUrl = "${AppConstants.BASE_URL}api/v1/thumbnails/${video.thumbnail}"
+            // rows span the screen, so ask for a copy that wide instead of the full-size frame
+            val width = root.resources.displayMetrics.widthPixels
+            val thumbnailUrl = "${AppConstants.BASE_URL}api/v1/thumbnails/${video.thumbnail}?width=$width"
             Log.d("ThumbnailURL", "Loading thumbnail from: $thumbnailUrl")
 
             // Load thumbnail using Glide or Picasso
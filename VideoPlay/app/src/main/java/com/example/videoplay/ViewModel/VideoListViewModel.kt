@@ -7,6 +7,8 @@ import androidx.lifecycle.viewModelScope
 import com.example.videoplay.data.VideoData
 import com.example.videoplay.repo.VideoListRepository
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -18,6 +20,7 @@ class VideoListViewModel : ViewModel() {
 
     init {
         fetchAllVideos()
+        watchCatalog()
     }
 
     fun fetchAllVideos() {
@@ -33,4 +36,22 @@ class VideoListViewModel : ViewModel() {
         }
     }
 
-}
\ No newline at end of file
+    // reload when the server pushes a status change instead of polling, reconnecting if the stream drops
+    private fun watchCatalog() {
+        viewModelScope.launch {
+            while (isActive) {
+                try {
+                    videoRepository.catalogChanges().collect { fetchAllVideos() }
+                } catch (e: Exception) {
+                    e.printStackTrace()
+                }
+                delay(RECONNECT_DELAY_MS)
+            }
+        }
+    }
+
+    companion object {
+        private const val RECONNECT_DELAY_MS = 3000L
+    }
+
+}
@@ -3,8 +3,18 @@ package com.example.videoplay.repo
 import com.example.videoplay.Api.MyAPI
 import com.example.videoplay.data.VideoData
 import com.example.videoplay.utils.AppConstants
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.sse.EventSource
+import okhttp3.sse.EventSourceListener
+import okhttp3.sse.EventSources
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.util.concurrent.TimeUnit
 
 class VideoListRepository {
     private val api: MyAPI by lazy {
@@ -15,8 +25,38 @@ class VideoListRepository {
             .create(MyAPI::class.java)
     }
 
+    // the server sends a heartbeat every 25s, a longer silence means the stream is dead
+    private val eventClient: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .readTimeout(60, TimeUnit.SECONDS)
+            .build()
+    }
+
     suspend fun getAllVideos(): List<VideoData> {
         return api.getVideos()
     }
 
-}
\ No newline at end of file
+    // emits the event type whenever a video changes status or is deleted, ends when the stream does
+    fun catalogChanges(): Flow<String> = callbackFlow {
+        val request = Request.Builder()
+            .url(AppConstants.BASE_URL + "api/v1/videos/events")
+            .build()
+        val eventSource = EventSources.createFactory(eventClient).newEventSource(request, object : EventSourceListener() {
+            override fun onEvent(eventSource: EventSource, id: String?, type: String?, data: String) {
+                if (type == "status" || type == "deleted") {
+                    trySend(type)
+                }
+            }
+
+            override fun onClosed(eventSource: EventSource) {
+                close()
+            }
+
+            override fun onFailure(eventSource: EventSource, t: Throwable?, response: Response?) {
+                close(t)
+            }
+        })
+        awaitClose { eventSource.cancel() }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.videoplayback.videoStream.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, e.g. of the base and head commit
+ * of a change. A benchmark regressed when it got worse by more than the threshold (10% unless a
+ * third argument says otherwise) and by more than the error margins of both runs together.
+ * Exits with 1 when anything regressed, so a build can fail on it.
+ */
+public class ResultComparison {
+
+    record Score(double value, double error, String unit, boolean higherIsBetter) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ResultComparison <base.json> <head.json> [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, Score> base = read(args[0]);
+        Map<String, Score> head = read(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : head.entrySet()) {
+            Score before = base.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14.3f %s (new)%n", entry.getKey(), after.value(), after.unit());
+                continue;
+            }
+            double change = (after.value() - before.value()) / before.value();
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean regressed = worse > threshold
+                    && Math.abs(after.value() - before.value()) > before.error() + after.error();
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-90s %14.3f -> %14.3f %s %+7.1f%%%s%n", entry.getKey(), before.value(), after.value(),
+                    after.unit(), change * 100, regressed ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold * 100);
+            System.exit(1);
+        }
+    }
+
+    // benchmark method and parameters to its primary score
+    static Map<String, Score> read(String file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(Paths.get(file).toFile())) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key.toString(), new Score(metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    metric.path("scoreUnit").asText(),
+                    "thrpt".equals(run.path("mode").asText())));
+        }
+        return scores;
+    }
+}
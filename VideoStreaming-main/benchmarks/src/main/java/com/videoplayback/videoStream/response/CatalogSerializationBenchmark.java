@@ -0,0 +1,68 @@
+package com.videoplayback.videoStream.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog turned into JSON: {@link VideoResponse#fromEntity} over loaded rows, and a page of
+ * rows serialized and hashed for its ETag the way VideoServiceImpl builds a {@link VideoPage}.
+ * Rows carry titles and descriptions of typical length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogSerializationBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    int rows;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Video> videos;
+    private List<VideoResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        videos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String videoId = String.format("%08x-0000-4000-8000-%012x", i, i * 31L);
+            videos.add(Video.builder()
+                    .videoId(videoId)
+                    .title("Video number " + i + " of the benchmark catalog")
+                    .description("A description long enough to look like one people write, for video " + i
+                            + ", with a second sentence about what happens in it.")
+                    .thumbnail(videoId + "_thumb.jpg")
+                    .status(i % 10 == 0 ? VideoStatus.PROCESSING : VideoStatus.COMPLETED)
+                    .filePath("videos/" + videoId + ".mp4")
+                    .contentType("video/mp4")
+                    .build());
+        }
+        responses = videos.stream().map(VideoResponse::fromEntity).toList();
+    }
+
+    @Benchmark
+    public List<VideoResponse> fromEntity() {
+        List<VideoResponse> mapped = new ArrayList<>(videos.size());
+        for (Video video : videos) {
+            mapped.add(VideoResponse.fromEntity(video));
+        }
+        return mapped;
+    }
+
+    @Benchmark
+    public VideoPage page() throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(responses);
+        return new VideoPage(json, DigestUtils.md5DigestAsHex(json), null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.videoplayback.videoStream.streaming;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One range of a source served three ways: read into a byte[] first (what streamVideoRange did
+ * before FileRegionWriter), {@link FileRegionWriter#transfer} as it serves today, and a mapped
+ * buffer. The target is either an OutputStream, like the servlet response when the connector
+ * can't sendfile, or a FileChannel on /dev/null, where transferTo can stay in the kernel.
+ * The file is in the page cache after the first iteration, so this measures the copy, not the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class RangeServingBenchmark {
+    private static final long FILE_SIZE = 256L * 1024 * 1024;
+
+    @Param({"65536", "1048576", "16777216", "134217728"})
+    long rangeSize;
+
+    @Param({"stream", "channel"})
+    String target;
+
+    private Path file;
+    private FileChannel source;
+    private WritableByteChannel sink;
+    private OutputStream out;
+    private long position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("range-benchmark", ".mp4");
+        try (RandomAccessFile random = new RandomAccessFile(file.toFile(), "rw")) {
+            random.setLength(FILE_SIZE);
+        }
+        source = FileChannel.open(file, StandardOpenOption.READ);
+        if ("channel".equals(target)) {
+            FileChannel devNull = FileChannel.open(Paths.get("/dev/null"), StandardOpenOption.WRITE);
+            sink = devNull;
+            out = Channels.newOutputStream(devNull);
+        } else {
+            out = OutputStream.nullOutputStream();
+            sink = Channels.newChannel(out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        source.close();
+        sink.close();
+        Files.deleteIfExists(file);
+    }
+
+    // walk the file so consecutive ranges don't start at the same offset
+    private long nextPosition() {
+        long start = position;
+        position = (position + rangeSize + 4096) % (FILE_SIZE - rangeSize);
+        return start;
+    }
+
+    @Benchmark
+    public long heapCopy() throws IOException {
+        byte[] data = new byte[(int) rangeSize];
+        try (RandomAccessFile random = new RandomAccessFile(file.toFile(), "r")) {
+            random.seek(nextPosition());
+            random.readFully(data);
+        }
+        out.write(data);
+        return data.length;
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        return FileRegionWriter.transfer(source, nextPosition(), rangeSize, sink);
+    }
+
+    @Benchmark
+    public long mmap() throws IOException {
+        MappedByteBuffer mapped = source.map(FileChannel.MapMode.READ_ONLY, nextPosition(), rangeSize);
+        long written = 0;
+        while (mapped.hasRemaining()) {
+            written += sink.write(mapped);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,84 @@
+package com.videoplayback.videoStream.streaming;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving one finished segment the way getSegmentFile does: from {@link SegmentCache} when it is
+ * there, otherwise loaded into it first. Cold drops the cached copy before every request, so each
+ * one pays the read from (page-cached) disk and the direct buffer allocation; warm only copies
+ * the cached buffer out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=1g")
+public class SegmentServingBenchmark {
+    private static final String OUTPUT_KEY = "benchmark";
+    private static final String SEGMENT = "720p/segment_00001.ts";
+
+    @Param({"cold", "warm"})
+    String cache;
+
+    @Param({"262144", "2097152", "8388608"})
+    int segmentSize;
+
+    private Path directory;
+    private Path segment;
+    private SegmentCache segmentCache;
+    private WritableByteChannel sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segment-benchmark");
+        segment = directory.resolve("segment_00001.ts");
+        try (RandomAccessFile random = new RandomAccessFile(segment.toFile(), "rw")) {
+            random.setLength(segmentSize);
+        }
+
+        segmentCache = new SegmentCache();
+        ReflectionTestUtils.setField(segmentCache, "maxBytes", 256L * 1024 * 1024);
+        ReflectionTestUtils.setField(segmentCache, "maxEntryBytes", 16L * 1024 * 1024);
+        ReflectionTestUtils.setField(segmentCache, "meterRegistry", new SimpleMeterRegistry());
+        segmentCache.init();
+        segmentCache.load(OUTPUT_KEY, SEGMENT, segment);
+
+        sink = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(segment);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long serve() throws IOException {
+        if ("cold".equals(cache)) {
+            segmentCache.invalidate(OUTPUT_KEY);
+        }
+        SegmentCache.Entry entry = segmentCache.get(OUTPUT_KEY, SEGMENT);
+        if (entry == null) {
+            entry = segmentCache.load(OUTPUT_KEY, SEGMENT, segment);
+        }
+        ByteBuffer data = entry.data().duplicate();
+        long written = 0;
+        while (data.hasRemaining()) {
+            written += sink.write(data);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,8 @@
+package com.videoplayback.videoStream.Entity;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,35 @@
+package com.videoplayback.videoStream.Entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * An uploaded source file stored once under its SHA-256, together with everything derived from
+ * it (HLS output, thumbnails). Every video uploaded with the same content holds a reference.
+ */
+@Entity
+@Builder
+@Table(name = "media_asset")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaAsset {
+
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+
+    private String filePath;
+
+    private Long sizeBytes;
+
+    private int refCount;
+
+    private Instant createdAt;
+}
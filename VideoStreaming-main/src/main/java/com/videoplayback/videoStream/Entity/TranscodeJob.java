@@ -0,0 +1,53 @@
+package com.videoplayback.videoStream.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Builder
+@Table(name = "transcode_job", indexes = {
+        @Index(name = "idx_transcode_job_queue", columnList = "status, priority, createdAt"),
+        @Index(name = "idx_transcode_job_video", columnList = "videoId")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranscodeJob {
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String videoId;
+
+    private int priority;
+
+    @Enumerated(EnumType.STRING)
+    private JobStatus status;
+
+    private int attempts;
+
+    // overrides transcode.watchdog.stall-timeout-seconds for this job, e.g. on a retry
+    private Integer watchdogSeconds;
+
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    // node running the job and until when its claim holds, renewed while the job runs
+    @Column(length = 128)
+    private String owner;
+
+    private Instant leaseUntil;
+
+    @Column(length = 1000)
+    private String error;
+}
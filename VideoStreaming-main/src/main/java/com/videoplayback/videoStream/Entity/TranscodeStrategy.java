@@ -0,0 +1,13 @@
+package com.videoplayback.videoStream.Entity;
+
+/**
+ * How a video's source was turned into HLS, chosen from its probed codecs.
+ */
+public enum TranscodeStrategy {
+    /** H.264 video and AAC (or no) audio are copied into the segments as they are. */
+    REMUX,
+    /** The H.264 video is copied, only the audio is encoded to AAC. */
+    AUDIO_TRANSCODE,
+    /** Everything is encoded. */
+    FULL_TRANSCODE
+}
@@ -0,0 +1,41 @@
+package com.videoplayback.videoStream.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Entity
+@Builder
+@Table(name = "upload_chunk")
+@IdClass(UploadChunk.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadChunk {
+
+    @Id
+    private String uploadId;
+
+    @Id
+    private int chunkIndex;
+
+    private int size;
+
+    @Column(length = 64)
+    private String sha256;
+
+    private Instant receivedAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String uploadId;
+        private int chunkIndex;
+    }
+}
@@ -0,0 +1,48 @@
+package com.videoplayback.videoStream.Entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Builder
+@Table(name = "upload_session")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    private String uploadId;
+
+    private String videoId;
+
+    private String title;
+
+    private String description;
+
+    private String contentType;
+
+    private String originalFilename;
+
+    private String filePath;
+
+    private long totalSize;
+
+    private int chunkSize;
+
+    private int chunkCount;
+
+    @Enumerated(EnumType.STRING)
+    private UploadStatus status;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    // why completing the upload failed
+    @Column(length = 1000)
+    private String error;
+}
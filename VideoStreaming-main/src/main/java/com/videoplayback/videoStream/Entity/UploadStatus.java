@@ -0,0 +1,9 @@
+package com.videoplayback.videoStream.Entity;
+
+public enum UploadStatus {
+    OPEN,
+    // every chunk is in, the file is being hashed and handed to the video pipeline
+    COMPLETING,
+    COMPLETED,
+    FAILED
+}
@@ -1,14 +1,22 @@
 package com.videoplayback.videoStream.Entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import lombok.*;
 
 @Entity
 @Builder
-@Table(name = "video")
+@Table(name = "video", indexes = {
+        @Index(name = "idx_video_asset", columnList = "assetId"),
+        @Index(name = "idx_video_status_id", columnList = "status, videoId"),
+        @Index(name = "idx_video_title", columnList = "title")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,5 +38,46 @@ public class Video {
 
     private String thumbnail;
 
-    
+    private Long sizeBytes;
+
+    @Column(length = 64)
+    private String contentHash;
+
+    // the MediaAsset holding source and output, null for videos stored before deduplication
+    @Column(length = 64)
+    private String assetId;
+
+    // probed at ingest, see MediaProbe
+    private Double durationSeconds;
+
+    private Integer width;
+
+    private Integer height;
+
+    private Integer rotation;
+
+    private Long bitrate;
+
+    @Column(length = 32)
+    private String videoCodec;
+
+    @Column(length = 32)
+    private String pixelFormat;
+
+    @Column(length = 32)
+    private String audioCodec;
+
+    private Double keyframeIntervalSeconds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private TranscodeStrategy transcodeStrategy;
+
+    /**
+     * Name of the directory under files.video.hsl and the thumbnail prefix: the asset shared by
+     * all uploads of the same content, or the video itself for videos stored before that.
+     */
+    public String outputKey() {
+        return assetId != null ? assetId : videoId;
+    }
 }
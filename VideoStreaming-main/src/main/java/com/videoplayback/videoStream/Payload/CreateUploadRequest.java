@@ -0,0 +1,18 @@
+package com.videoplayback.videoStream.Payload;
+
+import lombok.*;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+public class CreateUploadRequest {
+    private String title;
+    private String description;
+    private String filename;
+    private String contentType;
+    private long totalSize;
+    // optional, the server picks one when absent
+    private Integer chunkSize;
+}
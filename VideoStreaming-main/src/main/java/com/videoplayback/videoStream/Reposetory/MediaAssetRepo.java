@@ -0,0 +1,41 @@
+package com.videoplayback.videoStream.Reposetory;
+
+import com.videoplayback.videoStream.Entity.MediaAsset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface MediaAssetRepo extends JpaRepository<MediaAsset, String> {
+
+    @Transactional
+    // clears the persistence context so a following findById sees the new count
+    @Modifying(clearAutomatically = true)
+    @Query("update MediaAsset a set a.refCount = a.refCount + :delta where a.contentHash = :contentHash")
+    int adjustRefCount(@Param("contentHash") String contentHash, @Param("delta") int delta);
+
+    // an asset whose count reached zero is being deleted and takes no new references
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update MediaAsset a set a.refCount = a.refCount + 1 where a.contentHash = :contentHash and a.refCount > 0")
+    int addReference(@Param("contentHash") String contentHash);
+
+    // the primary key turns away a second insert of the same content, from this node or another
+    @Transactional
+    @Modifying
+    @Query(value = "insert into media_asset (content_hash, file_path, size_bytes, ref_count, created_at)"
+            + " values (:contentHash, :filePath, :sizeBytes, 1, :createdAt)", nativeQuery = true)
+    void insert(@Param("contentHash") String contentHash, @Param("filePath") String filePath,
+                @Param("sizeBytes") long sizeBytes, @Param("createdAt") Instant createdAt);
+
+    // of several releases that saw the count reach zero, only the one that marks it deletes the files
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update MediaAsset a set a.refCount = -1 where a.contentHash = :contentHash and a.refCount = 0")
+    int claimDeletion(@Param("contentHash") String contentHash);
+}
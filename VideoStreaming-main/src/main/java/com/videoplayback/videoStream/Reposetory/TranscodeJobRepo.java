@@ -0,0 +1,71 @@
+package com.videoplayback.videoStream.Reposetory;
+
+import com.videoplayback.videoStream.Entity.JobStatus;
+import com.videoplayback.videoStream.Entity.TranscodeJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TranscodeJobRepo extends JpaRepository<TranscodeJob, Long> {
+    long countByStatus(JobStatus status);
+
+    List<TranscodeJob> findByStatus(JobStatus status);
+
+    List<TranscodeJob> findByStatusOrderByPriorityDescCreatedAtAsc(JobStatus status, Pageable pageable);
+
+    // RUNNING jobs whose node stopped renewing the lease, or that were claimed before there were leases
+    @Query("select j from TranscodeJob j where j.status = com.videoplayback.videoStream.Entity.JobStatus.RUNNING " +
+            "and (j.leaseUntil is null or j.leaseUntil < :now)")
+    List<TranscodeJob> findExpired(@Param("now") Instant now);
+
+    List<TranscodeJob> findByStatusAndOwner(JobStatus status, String owner);
+
+    // moves a job from QUEUED to RUNNING only if nobody else got there first
+    @Transactional
+    @Modifying
+    @Query("update TranscodeJob j set j.status = com.videoplayback.videoStream.Entity.JobStatus.RUNNING, " +
+            "j.startedAt = :now, j.attempts = j.attempts + 1, j.owner = :owner, j.leaseUntil = :leaseUntil " +
+            "where j.id = :id and j.status = com.videoplayback.videoStream.Entity.JobStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("now") Instant now,
+              @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    // extends the claims of the jobs a node is still running
+    @Transactional
+    @Modifying
+    @Query("update TranscodeJob j set j.leaseUntil = :leaseUntil " +
+            "where j.id in :ids and j.owner = :owner " +
+            "and j.status = com.videoplayback.videoStream.Entity.JobStatus.RUNNING")
+    int renew(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    /**
+     * Takes a RUNNING job away from its node once the lease has run out, or from
+     * {@code staleOwner} regardless of the lease; null matches no owner.
+     */
+    @Transactional
+    @Modifying
+    @Query("update TranscodeJob j set j.status = :status, j.owner = null, j.leaseUntil = null, " +
+            "j.finishedAt = :finishedAt, j.error = :error " +
+            "where j.id = :id and j.status = com.videoplayback.videoStream.Entity.JobStatus.RUNNING " +
+            "and (j.leaseUntil is null or j.leaseUntil < :now or j.owner = :staleOwner)")
+    int takeOver(@Param("id") Long id, @Param("status") JobStatus status, @Param("now") Instant now,
+                 @Param("staleOwner") String staleOwner,
+                 @Param("finishedAt") Instant finishedAt, @Param("error") String error);
+
+    // ends a job, unless another node has taken it over meanwhile
+    @Transactional
+    @Modifying
+    @Query("update TranscodeJob j set j.status = :status, j.finishedAt = :now, j.error = :error, j.leaseUntil = null " +
+            "where j.id = :id and j.owner = :owner " +
+            "and j.status = com.videoplayback.videoStream.Entity.JobStatus.RUNNING")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") JobStatus status,
+               @Param("now") Instant now, @Param("error") String error);
+}
@@ -0,0 +1,33 @@
+package com.videoplayback.videoStream.Reposetory;
+
+import com.videoplayback.videoStream.Entity.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UploadChunkRepo extends JpaRepository<UploadChunk, UploadChunk.Key> {
+    long countByUploadId(String uploadId);
+
+    @Query("select c.chunkIndex from UploadChunk c where c.uploadId = :uploadId order by c.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("uploadId") String uploadId);
+
+    // a resent chunk replaces the row of the earlier attempt
+    @Transactional
+    @Modifying
+    @Query("update UploadChunk c set c.size = :size, c.sha256 = :sha256, c.receivedAt = :receivedAt " +
+            "where c.uploadId = :uploadId and c.chunkIndex = :chunkIndex")
+    int update(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex, @Param("size") int size,
+               @Param("sha256") String sha256, @Param("receivedAt") Instant receivedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UploadChunk c where c.uploadId = :uploadId")
+    void deleteByUploadId(@Param("uploadId") String uploadId);
+}
@@ -0,0 +1,33 @@
+package com.videoplayback.videoStream.Reposetory;
+
+import com.videoplayback.videoStream.Entity.UploadSession;
+import com.videoplayback.videoStream.Entity.UploadStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepo extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByStatusAndUpdatedAtBefore(UploadStatus status, Instant cutoff);
+
+    // chunks arrive concurrently, so only the timestamp is written rather than the whole row;
+    // returns 0 once the session is no longer open
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.updatedAt = :now where s.uploadId = :uploadId " +
+            "and s.status = com.videoplayback.videoStream.Entity.UploadStatus.OPEN")
+    int touchOpen(@Param("uploadId") String uploadId, @Param("now") Instant now);
+
+    // moves the session on only if it is still where the caller saw it, one caller wins
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.status = :to, s.updatedAt = :now where s.uploadId = :uploadId and s.status = :from")
+    int transition(@Param("uploadId") String uploadId, @Param("from") UploadStatus from,
+                   @Param("to") UploadStatus to, @Param("now") Instant now);
+}
@@ -1,12 +1,37 @@
 package com.videoplayback.videoStream.Reposetory;
 
 import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.response.VideoResponse;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VideoRepo extends JpaRepository<Video,String> {
-    Optional<Video> findByTitle(String title);
+    // titles are not unique
+    Optional<Video> findFirstByTitle(String title);
+
+    List<Video> findByAssetId(String assetId);
+
+    boolean existsByFilePath(String filePath);
+
+    // outputs are keyed by the asset's hash, or by the video's id for videos stored before assets
+    @Query("select count(v) > 0 from Video v where (v.assetId = :outputKey or (v.assetId is null and v.videoId = :outputKey))"
+            + " and v.status = :status")
+    boolean existsByOutputKeyAndStatus(@Param("outputKey") String outputKey, @Param("status") VideoStatus status);
+
+    // catalog pages: keyset on the primary key, only the columns the list shows are read
+    @Query("select new com.videoplayback.videoStream.response.VideoResponse(v.videoId, v.title, v.description, v.thumbnail, v.status)"
+            + " from Video v where v.videoId > :after order by v.videoId")
+    List<VideoResponse> findPageAfter(@Param("after") String after, Limit limit);
+
+    @Query("select new com.videoplayback.videoStream.response.VideoResponse(v.videoId, v.title, v.description, v.thumbnail, v.status)"
+            + " from Video v where v.status = :status and v.videoId > :after order by v.videoId")
+    List<VideoResponse> findPageByStatusAfter(@Param("status") VideoStatus status, @Param("after") String after, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.videoplayback.videoStream.Service;
+
+import com.videoplayback.videoStream.Entity.MediaAsset;
+import com.videoplayback.videoStream.ingest.IngestedFile;
+
+import java.io.IOException;
+
+public interface MediaAssetService {
+    // stores the upload under its content hash, or drops it in favour of the copy already stored
+    MediaAsset attach(IngestedFile file) throws IOException;
+
+    // drops one reference, the last one deletes the source and everything derived from it
+    void release(String contentHash) throws IOException;
+
+    // HLS output, thumbnail and cached segments stored under an asset's hash or a legacy video's id
+    void deleteOutputs(String outputKey) throws IOException;
+}
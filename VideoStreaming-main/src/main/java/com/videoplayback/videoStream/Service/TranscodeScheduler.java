@@ -0,0 +1,17 @@
+package com.videoplayback.videoStream.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface TranscodeScheduler {
+
+    // rejects new uploads while too many jobs are already waiting
+    void checkCapacity();
+
+    // queue a video for transcoding, completes with the videoId once the job is done
+    CompletableFuture<String> enqueue(String videoId, int priority);
+
+    // as above, with its own stall timeout for ffmpeg, null for the configured one
+    CompletableFuture<String> enqueue(String videoId, int priority, Integer watchdogSeconds);
+
+    long queuedJobs();
+}
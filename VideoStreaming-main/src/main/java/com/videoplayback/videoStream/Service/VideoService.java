@@ -1,14 +1,23 @@
 package com.videoplayback.videoStream.Service;
 
 import com.videoplayback.videoStream.Entity.Video;
-import org.springframework.web.multipart.MultipartFile;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.ingest.IngestedFile;
+import com.videoplayback.videoStream.response.TranscodeProgress;
+import com.videoplayback.videoStream.response.VideoPage;
+import com.videoplayback.videoStream.search.InvertedIndex;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.Future;
 
 public interface VideoService {
-    Video save(Video video, MultipartFile file) throws IOException;
+    // reject uploads up front while the transcoding queue is full
+    void checkUploadCapacity();
+
+    Video save(Video video, IngestedFile file);
+
+    // removes the video, its files go once no other video shares them
+    void delete(String videoId);
 
 
     // get video by id
@@ -21,8 +30,26 @@ public interface VideoService {
 
     List<Video> getAll();
 
+    // ranked full-text search over titles and descriptions, page is zero-based
+    InvertedIndex.Result search(String query, VideoStatus status, int page, int size);
+
+    // one page of the catalog after the cursor of the previous one, optionally only one status
+    VideoPage getPage(VideoStatus status, String cursor, int limit);
+
+    // ETag of that page, known without loading it
+    String getPageEtag(VideoStatus status, String cursor, int limit);
+
     //video processing
     Future<String> processVideo(String videoId);
     boolean isProcessingComplete(String videoId);
 
+    // whether the files under an output key are final, i.e. a video using them has completed
+    boolean isOutputComplete(String outputKey);
+
+    // live progress of the running transcode, or what the status says once there is none
+    TranscodeProgress getProgress(String videoId);
+
+    // queue a failed video again, optionally with its own ffmpeg stall timeout
+    TranscodeProgress retranscode(String videoId, Integer watchdogSeconds);
+
 }
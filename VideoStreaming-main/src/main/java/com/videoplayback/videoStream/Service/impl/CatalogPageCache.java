@@ -0,0 +1,100 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import com.videoplayback.videoStream.response.VideoPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Serialized catalog pages. Any change to any video can move it into or out of a page, so a
+ * change simply starts a new generation; pages of older generations are never looked up again
+ * and age out, including one that was still being loaded while the change happened.
+ * <p>
+ * The generation doubles as the pages' ETag, so a conditional request is answered without
+ * loading or hashing the page. Generations start at the node's start time, a restarted node
+ * never hands out an ETag of its previous run again.
+ * <p>
+ * Changes only bump the generation of the node that made them. Pages and ETags therefore also
+ * belong to a period of cache.catalog.ttl-seconds, so another node's change is picked up within
+ * one period.
+ */
+@Component
+public class CatalogPageCache {
+
+    record Key(long generation, long period, VideoStatus status, String cursor, int limit) {
+        // the cursor comes from the client, it is hashed rather than quoted into the header
+        String etag() {
+            return Long.toHexString(generation) + "-" + Long.toHexString(period) + "-"
+                    + Integer.toHexString(Objects.hash(status == null ? null : status.name(), cursor, limit));
+        }
+    }
+
+    @Value("${cache.catalog.max-pages}")
+    private long maxPages;
+
+    @Value("${cache.catalog.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+    private Cache<Key, VideoPage> cache;
+    Clock clock = Clock.systemUTC();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "videos.catalog");
+    }
+
+    // the loader is handed the ETag the page is cached under
+    public VideoPage get(VideoStatus status, String cursor, int limit, Function<String, VideoPage> loader) {
+        return cache.get(key(status, cursor, limit), key -> loader.apply(key.etag()));
+    }
+
+    // the ETag the page currently has, whether it is cached or not
+    public String etag(VideoStatus status, String cursor, int limit) {
+        return key(status, cursor, limit).etag();
+    }
+
+    private Key key(VideoStatus status, String cursor, int limit) {
+        long period = clock.millis() / TimeUnit.SECONDS.toMillis(ttlSeconds);
+        return new Key(generation.get(), period, status, cursor, limit);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onStatusChanged(VideoStatusChangedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onDeleted(VideoDeletedEvent event) {
+        invalidateAll();
+    }
+}
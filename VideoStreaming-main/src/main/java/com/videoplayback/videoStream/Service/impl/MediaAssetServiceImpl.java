@@ -0,0 +1,135 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.videoplayback.videoStream.Entity.MediaAsset;
+import com.videoplayback.videoStream.Reposetory.MediaAssetRepo;
+import com.videoplayback.videoStream.Service.MediaAssetService;
+import com.videoplayback.videoStream.ingest.IngestedFile;
+import com.videoplayback.videoStream.ingest.MultipartIngestService;
+import com.videoplayback.videoStream.streaming.FileMetadataCache;
+import com.videoplayback.videoStream.streaming.SegmentCache;
+import com.videoplayback.videoStream.transcode.ThumbnailGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+
+/**
+ * Content-addressed storage of sources: {@code files.video/<sha256><ext>}. The reference count
+ * lives in the database and is only changed by single-row updates, so attach and release need no
+ * lock of their own and stay correct across nodes.
+ */
+@Service
+public class MediaAssetServiceImpl implements MediaAssetService {
+    private final Logger logger = LoggerFactory.getLogger(MediaAssetServiceImpl.class);
+
+    @Autowired
+    private MediaAssetRepo mediaAssetRepo;
+    @Autowired
+    private ThumbnailGenerator thumbnailGenerator;
+    @Autowired
+    private SegmentCache segmentCache;
+    @Autowired
+    private FileMetadataCache fileMetadataCache;
+
+    private static final int ATTACH_ATTEMPTS = 100;
+    private static final long ATTACH_RETRY_MS = 20;
+
+    @Value("${files.video}")
+    String DIR;
+
+    @Value("${files.video.hsl}")
+    String HSL_DIR;
+
+    @Override
+    public MediaAsset attach(IngestedFile file) throws IOException {
+        String hash = file.sha256();
+        Path target = Paths.get(DIR, hash + MultipartIngestService.extension(file.path().getFileName().toString()));
+        for (int attempt = 1; ; attempt++) {
+            if (mediaAssetRepo.addReference(hash) == 1) {
+                // referenced now, so the row stays until this reference is released
+                MediaAsset existing = mediaAssetRepo.findById(hash).orElseThrow();
+                Path stored = Paths.get(existing.getFilePath());
+                if (Files.exists(stored)) {
+                    Files.deleteIfExists(file.path());
+                    logger.info("Upload {} is a duplicate of asset {}", file.path(), hash);
+                } else {
+                    // the row outlived its file, the upload takes its place
+                    store(file, stored, hash);
+                }
+                return existing;
+            }
+            try {
+                mediaAssetRepo.insert(hash, target.toString(), file.size(), Instant.now());
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // stored by another upload meanwhile, or still being deleted by its last release
+                if (attempt == ATTACH_ATTEMPTS) {
+                    throw new IOException("Asset " + hash + " is still being deleted", e);
+                }
+                pause();
+            }
+        }
+        store(file, target, hash);
+        return MediaAsset.builder()
+                .contentHash(hash)
+                .filePath(target.toString())
+                .sizeBytes(file.size())
+                .refCount(1)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private void store(IngestedFile file, Path target, String hash) throws IOException {
+        try {
+            Files.move(file.path(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            release(hash);
+            throw e;
+        }
+        fileMetadataCache.invalidate(target);
+    }
+
+    private static void pause() throws IOException {
+        try {
+            Thread.sleep(ATTACH_RETRY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while storing an upload");
+        }
+    }
+
+    @Override
+    public void release(String contentHash) throws IOException {
+        mediaAssetRepo.adjustRefCount(contentHash, -1);
+        MediaAsset asset = mediaAssetRepo.findById(contentHash).orElse(null);
+        if (asset == null || asset.getRefCount() > 0 || mediaAssetRepo.claimDeletion(contentHash) == 0) {
+            return;
+        }
+        // files first and the row last: an upload of the same content waits for the row to go
+        // before it stores its copy, so that copy is never the one deleted here
+        logger.info("Deleting asset {}, no video references it any more", contentHash);
+        Files.deleteIfExists(Paths.get(asset.getFilePath()));
+        fileMetadataCache.invalidate(Paths.get(asset.getFilePath()));
+        deleteOutputs(contentHash);
+        mediaAssetRepo.deleteById(contentHash);
+    }
+
+    @Override
+    public void deleteOutputs(String outputKey) throws IOException {
+        segmentCache.invalidate(outputKey);
+        thumbnailGenerator.delete(outputKey);
+        FileSystemUtils.deleteRecursively(Paths.get(HSL_DIR, outputKey));
+        fileMetadataCache.invalidateOutputs(outputKey);
+    }
+}
@@ -0,0 +1,359 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.videoplayback.videoStream.Entity.JobStatus;
+import com.videoplayback.videoStream.Entity.TranscodeJob;
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.Reposetory.TranscodeJobRepo;
+import com.videoplayback.videoStream.Reposetory.VideoRepo;
+import com.videoplayback.videoStream.Service.TranscodeScheduler;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import com.videoplayback.videoStream.exception.TranscodeQueueFullException;
+import com.videoplayback.videoStream.exception.TranscodeStalledException;
+import com.videoplayback.videoStream.exception.VideoException;
+import com.videoplayback.videoStream.exception.VideoNotFoundException;
+import com.videoplayback.videoStream.streaming.FileMetadataCache;
+import com.videoplayback.videoStream.transcode.HlsTranscoder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs transcoding jobs from the transcode_job table on a fixed pool of workers.
+ * Every ffmpeg process gets {@code transcode.threads-per-job} threads and the pool is sized so
+ * that workers x threads does not exceed the cores, so concurrent uploads queue up instead of
+ * oversubscribing the CPU. Chunked transcodes split the same budget between their chunks.
+ * <p>
+ * Several nodes can share the table: a claimed job holds a lease its node renews while running
+ * it. Jobs whose lease runs out, because their node died, are queued again by whichever node
+ * notices first; a restarted node takes back its own jobs right away.
+ */
+@Service
+public class TranscodeSchedulerImpl implements TranscodeScheduler {
+    private final Logger logger = LoggerFactory.getLogger(TranscodeSchedulerImpl.class);
+
+    @Autowired
+    private TranscodeJobRepo jobRepo;
+    @Autowired
+    private VideoRepo videoRepo;
+    @Autowired
+    private HlsTranscoder hlsTranscoder;
+    @Autowired
+    private FileMetadataCache fileMetadataCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${transcode.workers}")
+    int WORKERS;
+
+    @Value("${transcode.threads-per-job}")
+    int THREADS_PER_JOB;
+
+    @Value("${transcode.queue.capacity}")
+    long QUEUE_CAPACITY;
+
+    @Value("${transcode.max-attempts}")
+    int MAX_ATTEMPTS;
+
+    @Value("${transcode.node-id}")
+    String NODE_ID;
+
+    @Value("${transcode.lease-seconds}")
+    long LEASE_SECONDS;
+
+    private String owner;
+    private ExecutorService executor;
+    private Semaphore freeWorkers;
+    // completions of the jobs queued here, wherever they end up running
+    private final Map<Long, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    // jobs running here, their leases are renewed until they finish
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        int workers = WORKERS > 0
+                ? WORKERS
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / THREADS_PER_JOB);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "transcode-" + threadCount.incrementAndGet()));
+        freeWorkers = new Semaphore(workers);
+        owner = NODE_ID.isBlank() ? hostName() : NODE_ID;
+        // a count query per scrape, cheap on the queue index
+        Gauge.builder("transcode.queue.depth", jobRepo, repo -> repo.countByStatus(JobStatus.QUEUED))
+                .description("Transcode jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("transcode.workers.busy", freeWorkers, free -> workers - free.availablePermits())
+                .register(meterRegistry);
+        logger.info("Transcoding with {} workers, {} threads each, as node {}", workers, THREADS_PER_JOB, owner);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // interrupted jobs stay RUNNING, their lease runs out or recover() takes them back on restart
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        // whatever this node held before it restarted is not running anymore
+        requeue(jobRepo.findByStatusAndOwner(JobStatus.RUNNING, owner), owner);
+        requeueExpired();
+    }
+
+    @Scheduled(fixedDelayString = "${transcode.lease-renew-interval-ms}")
+    public void renewLeases() {
+        if (running.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(running);
+        int renewed = jobRepo.renew(ids, owner, Instant.now().plusSeconds(LEASE_SECONDS));
+        if (renewed < ids.size()) {
+            logger.warn("Lost the lease of {} of {} running transcode jobs to another node", ids.size() - renewed, ids.size());
+        }
+    }
+
+    /**
+     * Queues the jobs of nodes that stopped renewing their leases again, and settles the
+     * completions of jobs queued here that another node has finished.
+     */
+    @Scheduled(fixedDelayString = "${transcode.lease-check-interval-ms}")
+    public void requeueExpired() {
+        requeue(jobRepo.findExpired(Instant.now()), null);
+        settlePending();
+        dispatch();
+    }
+
+    private void requeue(List<TranscodeJob> jobs, String staleOwner) {
+        for (TranscodeJob job : jobs) {
+            boolean giveUp = job.getAttempts() >= MAX_ATTEMPTS;
+            Instant now = Instant.now();
+            int taken = giveUp
+                    ? jobRepo.takeOver(job.getId(), JobStatus.FAILED, now, staleOwner, now, "Interrupted too many times")
+                    : jobRepo.takeOver(job.getId(), JobStatus.QUEUED, now, staleOwner, null, null);
+            if (taken == 0) {
+                // renewed or taken over by another node meanwhile
+                continue;
+            }
+            if (giveUp) {
+                logger.warn("Giving up on transcode job {} for video {} after {} attempts",
+                        job.getId(), job.getVideoId(), job.getAttempts());
+                videoRepo.findById(job.getVideoId()).ifPresent(video -> updateStatus(video, VideoStatus.FAILED));
+            } else {
+                logger.info("Re-queueing interrupted transcode job {} for video {} of node {}",
+                        job.getId(), job.getVideoId(), job.getOwner());
+                videoRepo.findById(job.getVideoId()).ifPresent(video -> updateStatus(video, VideoStatus.UPLOADED));
+            }
+        }
+    }
+
+    private void settlePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(pending.keySet());
+        Set<Long> found = new HashSet<>();
+        for (TranscodeJob job : jobRepo.findAllById(ids)) {
+            found.add(job.getId());
+            if (job.getStatus() == JobStatus.SUCCEEDED || job.getStatus() == JobStatus.FAILED) {
+                settle(job.getId(), job.getVideoId(), job.getStatus(), job.getError());
+            }
+        }
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                settle(id, null, JobStatus.FAILED, "Job was removed");
+            }
+        }
+    }
+
+    private void settle(Long jobId, String videoId, JobStatus status, String error) {
+        CompletableFuture<String> completion = pending.remove(jobId);
+        if (completion == null) {
+            return;
+        }
+        if (status == JobStatus.SUCCEEDED) {
+            completion.complete(videoId);
+        } else {
+            completion.completeExceptionally(new VideoException("Transcode job " + jobId + " failed: " + error));
+        }
+    }
+
+    @Override
+    public void checkCapacity() {
+        long queued = jobRepo.countByStatus(JobStatus.QUEUED);
+        if (queued >= QUEUE_CAPACITY) {
+            throw new TranscodeQueueFullException(queued);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> enqueue(String videoId, int priority) {
+        return enqueue(videoId, priority, null);
+    }
+
+    @Override
+    public CompletableFuture<String> enqueue(String videoId, int priority, Integer watchdogSeconds) {
+        TranscodeJob job = jobRepo.save(TranscodeJob.builder()
+                .videoId(videoId)
+                .priority(priority)
+                .watchdogSeconds(watchdogSeconds)
+                .status(JobStatus.QUEUED)
+                .createdAt(Instant.now())
+                .build());
+        CompletableFuture<String> completion = new CompletableFuture<>();
+        pending.put(job.getId(), completion);
+        logger.info("Queued transcode job {} for video {} with priority {}", job.getId(), videoId, priority);
+
+        dispatch();
+        return completion;
+    }
+
+    @Override
+    public long queuedJobs() {
+        return jobRepo.countByStatus(JobStatus.QUEUED);
+    }
+
+    /**
+     * Hands the highest priority queued jobs to idle workers. Also runs on a timer so jobs
+     * queued by another node or recovered after a restart are not left waiting.
+     */
+    @Scheduled(fixedDelayString = "${transcode.poll-interval-ms}")
+    public synchronized void dispatch() {
+        int free = freeWorkers.availablePermits();
+        if (free == 0 || executor.isShutdown()) {
+            return;
+        }
+
+        List<TranscodeJob> next = jobRepo.findByStatusOrderByPriorityDescCreatedAtAsc(
+                JobStatus.QUEUED, PageRequest.of(0, free));
+        for (TranscodeJob job : next) {
+            if (!freeWorkers.tryAcquire()) {
+                return;
+            }
+            Instant now = Instant.now();
+            if (jobRepo.claim(job.getId(), now, owner, now.plusSeconds(LEASE_SECONDS)) == 0) {
+                freeWorkers.release();
+                continue;
+            }
+            running.add(job.getId());
+            executor.execute(() -> run(job.getId()));
+        }
+    }
+
+    private void run(Long jobId) {
+        TranscodeJob job = jobRepo.findById(jobId).orElseThrow();
+        CompletableFuture<String> completion = pending.remove(jobId);
+        if (job.getCreatedAt() != null && job.getStartedAt() != null) {
+            meterRegistry.timer("transcode.queue.wait").record(Duration.between(job.getCreatedAt(), job.getStartedAt()));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        Video video = null;
+        try {
+            video = videoRepo.findById(job.getVideoId())
+                    .orElseThrow(() -> new VideoNotFoundException(job.getVideoId()));
+            updateStatus(video, VideoStatus.PROCESSING);
+
+            if (job.getWatchdogSeconds() != null) {
+                hlsTranscoder.transcode(video, Duration.ofSeconds(job.getWatchdogSeconds()));
+            } else {
+                hlsTranscoder.transcode(video);
+            }
+            // completed output is served from cached metadata, don't wait for the watch events
+            fileMetadataCache.invalidateOutputs(video.outputKey());
+
+            if (finish(job, JobStatus.SUCCEEDED, null, completion)) {
+                updateStatus(video, VideoStatus.COMPLETED);
+                outcome = "success";
+                if (completion != null) {
+                    completion.complete(video.getVideoId());
+                }
+            } else {
+                outcome = "taken-over";
+            }
+        } catch (InterruptedException e) {
+            outcome = "interrupted";
+            Thread.currentThread().interrupt();
+            if (completion != null) {
+                completion.completeExceptionally(e);
+            }
+        } catch (Exception e) {
+            if (e instanceof TranscodeStalledException) {
+                outcome = "stalled";
+            }
+            logger.error("Transcode job {} for video {} failed", jobId, job.getVideoId(), e);
+            if (finish(job, JobStatus.FAILED, e.getMessage(), completion)) {
+                if (video != null) {
+                    updateStatus(video, VideoStatus.FAILED);
+                }
+                if (completion != null) {
+                    completion.completeExceptionally(e);
+                }
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("transcode.duration", "outcome", outcome));
+            running.remove(jobId);
+            freeWorkers.release();
+            if (!Thread.currentThread().isInterrupted()) {
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Records the outcome if this node still holds the job's lease. Otherwise the node that took
+     * the job over owns the video's status too, and the completion is settled once it finishes.
+     */
+    private boolean finish(TranscodeJob job, JobStatus status, String error, CompletableFuture<String> completion) {
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (jobRepo.finish(job.getId(), owner, status, Instant.now(), message) == 0) {
+            logger.warn("Transcode job {} for video {} was taken over by another node before it finished",
+                    job.getId(), job.getVideoId());
+            if (completion != null) {
+                pending.put(job.getId(), completion);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    private void updateStatus(Video video, VideoStatus status) {
+        video.setStatus(status);
+        videoRepo.save(video);
+        eventPublisher.publishEvent(new VideoStatusChangedEvent(video.getVideoId(), status));
+    }
+}
@@ -0,0 +1,102 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of {@link Video} rows, so the many requests of one playback session don't
+ * each cost a database round trip. Lookups of unknown ids are cached too, for a shorter time.
+ * Every write to a video publishes a {@link VideoStatusChangedEvent} or {@link VideoDeletedEvent}
+ * and drops the entry, the TTL only bounds how stale a row changed behind our back can get.
+ */
+@Component
+public class VideoMetadataCache {
+
+    @Value("${cache.videos.max-entries}")
+    private long maxEntries;
+
+    @Value("${cache.videos.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${cache.videos.not-found-ttl-seconds}")
+    private long notFoundTtlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, Optional<Video>> cache;
+
+    @PostConstruct
+    public void init() {
+        long found = Duration.ofSeconds(ttlSeconds).toNanos();
+        long notFound = Duration.ofSeconds(notFoundTtlSeconds).toNanos();
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Optional<Video>>() {
+                    @Override
+                    public long expireAfterCreate(String videoId, Optional<Video> video, long currentTime) {
+                        return video.isPresent() ? found : notFound;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String videoId, Optional<Video> video, long currentTime, long currentDuration) {
+                        return expireAfterCreate(videoId, video, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String videoId, Optional<Video> video, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "videos.metadata");
+    }
+
+    /**
+     * Returns the cached lookup of {@code videoId}, calling {@code loader} on a miss. Concurrent
+     * misses for the same id share one load.
+     */
+    public Optional<Video> get(String videoId, Function<String, Optional<Video>> loader) {
+        return cache.get(videoId, loader);
+    }
+
+    public void invalidate(String videoId) {
+        cache.invalidate(videoId);
+    }
+
+    // before any other listener, they may look the video up again
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStatusChanged(VideoStatusChangedEvent event) {
+        invalidate(event.videoId());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDeleted(VideoDeletedEvent event) {
+        invalidate(event.videoId());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
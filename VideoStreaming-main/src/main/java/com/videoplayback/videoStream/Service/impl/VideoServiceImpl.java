@@ -1,35 +1,88 @@
 package com.videoplayback.videoStream.Service.impl;
 
+import com.videoplayback.videoStream.Entity.MediaAsset;
+import com.videoplayback.videoStream.Entity.TranscodeJob;
 import com.videoplayback.videoStream.Entity.Video;
 import com.videoplayback.videoStream.Entity.VideoStatus;
 import com.videoplayback.videoStream.Reposetory.VideoRepo;
+import com.videoplayback.videoStream.Service.MediaAssetService;
+import com.videoplayback.videoStream.Service.TranscodeScheduler;
 import com.videoplayback.videoStream.Service.VideoService;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import com.videoplayback.videoStream.exception.InvalidCursorException;
+import com.videoplayback.videoStream.exception.ResourceNotFoundException;
+import com.videoplayback.videoStream.exception.UploadRejectedException;
+import com.videoplayback.videoStream.exception.VideoBusyException;
+import com.videoplayback.videoStream.exception.VideoException;
 import com.videoplayback.videoStream.exception.VideoNotFoundException;
+import com.videoplayback.videoStream.ingest.IngestedFile;
+import com.videoplayback.videoStream.response.TranscodeProgress;
+import com.videoplayback.videoStream.response.VideoPage;
+import com.videoplayback.videoStream.response.VideoResponse;
+import com.videoplayback.videoStream.search.InvertedIndex;
+import com.videoplayback.videoStream.search.VideoSearchIndex;
+import com.videoplayback.videoStream.transcode.MediaProbe;
+import com.videoplayback.videoStream.transcode.ThumbnailGenerator;
+import com.videoplayback.videoStream.transcode.TranscodeProgressTracker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.Future;
 
 @Service
 public class VideoServiceImpl implements VideoService {
     @Autowired
     private VideoRepo videoRepo;
+    @Autowired
+    private TranscodeScheduler transcodeScheduler;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MediaProbe mediaProbe;
+    @Autowired
+    private MediaAssetService mediaAssetService;
+    @Autowired
+    private VideoMetadataCache videoMetadataCache;
+    @Autowired
+    private CatalogPageCache catalogPageCache;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private VideoSearchIndex videoSearchIndex;
+    @Autowired
+    private TranscodeProgressTracker progressTracker;
+    // output keys known to be complete, asked for by every thumbnail request
+    private final Cache<String, Boolean> completedOutputs = Caffeine.newBuilder()
+            .maximumSize(COMPLETED_OUTPUTS_MAX_ENTRIES)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+    // dedup decisions, status propagation and deletes of videos sharing an asset must not interleave
+    private final Object storageLock = new Object();
     private final Logger logger = LoggerFactory.getLogger(VideoServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int COMPLETED_OUTPUTS_MAX_ENTRIES = 10_000;
 
     public VideoServiceImpl(VideoRepo videoRepo) {
         this.videoRepo = videoRepo;
@@ -38,6 +91,9 @@ public class VideoServiceImpl implements VideoService {
     @Value("${files.video}")
     String DIR;
 
+    @Value("${transcode.priority.long-source-seconds}")
+    double LONG_SOURCE_SECONDS;
+
     @Value("${files.video.hsl}")
     String HSL_DIR;
 
@@ -56,71 +112,155 @@ public class VideoServiceImpl implements VideoService {
         if (!dir.exists()) {
             boolean created = dir.mkdirs();
             if (created) {
-                System.out.println("Directory created: " + dirPath);
+                logger.info("Directory created: {}", dirPath);
             } else {
-                System.err.println("Failed to create directory: " + dirPath);
+                logger.error("Failed to create directory: {}", dirPath);
             }
         }
     }
 
-    private String generateThumbnail(String videoPath, String videoId) throws IOException, InterruptedException {
-        String thumbnailFileName = videoId + "_thumb.jpg";
-        Path thumbnailPath = Paths.get(THUMBNAIL_DIR, thumbnailFileName);
+    @Override
+    public void checkUploadCapacity() {
+        transcodeScheduler.checkCapacity();
+    }
 
-        // FFmpeg command to extract thumbnail at 1 second mark
-        String ffmpegCmd = String.format(
-                "ffmpeg -i \"%s\" -ss 00:00:01.000 -vframes 1 -f image2 \"%s\"",
-                videoPath,
-                thumbnailPath.toString()
-        );
+    @Override
+    public Video save(Video video, IngestedFile file) {
+        video.setContentType(file.contentType());
+        video.setSizeBytes(file.size());
+        video.setContentHash(file.sha256());
+        probe(video, file);
 
-        ProcessBuilder processBuilder;
-        if (System.getProperty("os.name").toLowerCase().contains("win")) {
-            processBuilder = new ProcessBuilder("cmd.exe", "/c", ffmpegCmd);
-        } else {
-            processBuilder = new ProcessBuilder("sh", "-c", ffmpegCmd);
+        MediaAsset asset;
+        try {
+            asset = mediaAssetService.attach(file);
+        } catch (IOException e) {
+            throw new VideoException("Could not store the upload of video " + video.getVideoId(), e);
         }
-
-        processBuilder.inheritIO();
-        Process process = processBuilder.start();
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new RuntimeException("Thumbnail generation failed");
+        video.setAssetId(asset.getContentHash());
+        video.setFilePath(asset.getFilePath());
+        // the thumbnail is written by the transcode job and a placeholder is served until then
+        video.setThumbnail(ThumbnailGenerator.fileName(video.outputKey()));
+
+        // the asset's references are kept by the database; this lock only stops two uploads of the
+        // same content on this node from both starting a transcode
+        boolean transcode;
+        synchronized (storageLock) {
+            // the same content was uploaded before: share its output instead of transcoding again.
+            // Read after attaching, so a video found here cannot have its asset deleted meanwhile
+            List<Video> duplicates = videoRepo.findByAssetId(asset.getContentHash());
+            Video completed = firstWithStatus(duplicates, VideoStatus.COMPLETED);
+            Video inProgress = completed == null ? firstWithStatus(duplicates, VideoStatus.UPLOADED, VideoStatus.PROCESSING) : null;
+            if (completed != null) {
+                video.setStatus(VideoStatus.COMPLETED);
+                video.setTranscodeStrategy(completed.getTranscodeStrategy());
+            } else if (inProgress != null) {
+                // follows the other video's job, see onStatusChanged
+                video.setStatus(inProgress.getStatus());
+            } else {
+                video.setStatus(VideoStatus.UPLOADED);
+            }
+            transcode = completed == null && inProgress == null;
+            try {
+                videoRepo.save(video);
+            } catch (RuntimeException e) {
+                // the video never existed, so neither does its reference
+                try {
+                    mediaAssetService.release(asset.getContentHash());
+                } catch (IOException | RuntimeException releaseFailure) {
+                    e.addSuppressed(releaseFailure);
+                }
+                throw e;
+            }
         }
+        eventPublisher.publishEvent(new VideoStatusChangedEvent(video.getVideoId(), video.getStatus()));
 
-        return thumbnailFileName;
+        // Queue the transcode, the upload request does not wait for it
+        if (transcode) {
+            processVideo(video.getVideoId());
+        }
+        return video;
     }
 
-    @Override
-    public Video save(Video video, MultipartFile file) {
-        try {
-            String fileName = file.getOriginalFilename();
-            String contentType = file.getContentType();
-            InputStream inputStream = file.getInputStream();
-
-            String cleanFileName = StringUtils.cleanPath(fileName);
-            String cleanFolder = StringUtils.cleanPath(DIR);
-            Path videoPath = Paths.get(cleanFolder, cleanFileName);
-            Files.copy(inputStream, videoPath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Generate thumbnail from video
-            String thumbnailFileName = generateThumbnail(videoPath.toString(), video.getVideoId());
-
-            // Set video details
-            video.setContentType(contentType);
-            video.setFilePath(videoPath.toString());
-            video.setThumbnail(thumbnailFileName); // Store just the filename
+    private static Video firstWithStatus(List<Video> videos, VideoStatus... statuses) {
+        List<VideoStatus> wanted = List.of(statuses);
+        return videos.stream().filter(video -> wanted.contains(video.getStatus())).findFirst().orElse(null);
+    }
 
-            // Save video entity
-            videoRepo.save(video);
+    /**
+     * Videos sharing an asset share its transcode: whatever happens to the one whose job runs
+     * happens to the others still waiting for it.
+     */
+    @EventListener
+    public void onStatusChanged(VideoStatusChangedEvent event) {
+        if (event.status() == VideoStatus.UPLOADED) {
+            return;
+        }
+        synchronized (storageLock) {
+            Video changed = videoRepo.findById(event.videoId()).orElse(null);
+            if (changed == null || changed.getAssetId() == null) {
+                return;
+            }
+            for (Video other : videoRepo.findByAssetId(changed.getAssetId())) {
+                if (other.getStatus() == VideoStatus.COMPLETED || other.getStatus() == event.status()) {
+                    continue;
+                }
+                other.setStatus(event.status());
+                other.setTranscodeStrategy(changed.getTranscodeStrategy());
+                videoRepo.save(other);
+                eventPublisher.publishEvent(new VideoStatusChangedEvent(other.getVideoId(), event.status()));
+            }
+        }
+    }
 
-            // Start video processing asynchronously
-            processVideo(video.getVideoId());
+    @Override
+    public void delete(String videoId) {
+        synchronized (storageLock) {
+            // the status decides whether the files can go, don't trust a cached copy
+            Video video = videoRepo.findById(videoId).orElseThrow(() -> new VideoNotFoundException(videoId));
+            if (video.getStatus() == VideoStatus.UPLOADED || video.getStatus() == VideoStatus.PROCESSING) {
+                throw new VideoBusyException(videoId);
+            }
+            videoRepo.delete(video);
+            try {
+                if (video.getAssetId() != null) {
+                    mediaAssetService.release(video.getAssetId());
+                } else {
+                    // stored before deduplication, older uploads could share a file name
+                    if (video.getFilePath() != null && !videoRepo.existsByFilePath(video.getFilePath())) {
+                        Files.deleteIfExists(Paths.get(video.getFilePath()));
+                    }
+                    mediaAssetService.deleteOutputs(video.getVideoId());
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete all files of video {}: {}", videoId, e.getMessage());
+            }
+        }
+        logger.info("Deleted video {}", videoId);
+        eventPublisher.publishEvent(new VideoDeletedEvent(videoId));
+    }
 
-            return video;
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException("Failed to save video and generate thumbnail", e);
+    /**
+     * Stores codecs, resolution and duration on the video; the slower keyframe scan is left to the
+     * transcode job. Uploads ffprobe finds no video in are rejected here rather than failing later.
+     */
+    private void probe(Video video, IngestedFile file) {
+        try {
+            mediaProbe.probe(file.path().toString()).applyTo(video);
+        } catch (VideoException e) {
+            logger.warn("Rejecting upload of video {}: {}", video.getVideoId(), e.getMessage());
+            try {
+                Files.deleteIfExists(file.path());
+            } catch (IOException deleteFailed) {
+                logger.warn("Could not delete rejected upload {}", file.path(), deleteFailed);
+            }
+            throw new UploadRejectedException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "The uploaded file is not a playable video");
+        } catch (IOException e) {
+            // ffprobe itself could not be started, the transcode job probes again
+            logger.warn("Could not probe video {}: {}", video.getVideoId(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VideoException("Interrupted while probing video " + video.getVideoId(), e);
         }
     }
 
@@ -128,7 +268,7 @@ public class VideoServiceImpl implements VideoService {
     public Video get(String videoId) {
         logger.debug("Fetching video with ID: {}", videoId);
 
-        return videoRepo.findById(videoId)
+        return videoMetadataCache.get(videoId, videoRepo::findById)
                 .orElseThrow(() -> {
                     logger.error("Video not found with ID: {}", videoId);
                     return new VideoNotFoundException(videoId);
@@ -138,7 +278,8 @@ public class VideoServiceImpl implements VideoService {
 
     @Override
     public Video getByTitle(String title) {
-        return null;
+        return videoRepo.findFirstByTitle(title)
+                .orElseThrow(() -> new ResourceNotFoundException("No video titled " + title));
     }
 
     @Override
@@ -147,53 +288,117 @@ public class VideoServiceImpl implements VideoService {
     }
 
     @Override
-    @Async
-    public Future<String> processVideo(String videoId) {
-        Video video = this.get(videoId);
-        String filePath = video.getFilePath();
-        Path path = Paths.get(filePath);
-
-        try {
-            Path outputPath = Paths.get(HSL_DIR, videoId);
-            Files.createDirectories(outputPath);
+    public InvertedIndex.Result search(String query, VideoStatus status, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        return videoSearchIndex.search(query, status, Math.max(0, page) * limit, limit);
+    }
 
-            String ffmpegCmd = String.format(
-                    "ffmpeg -i \"%s\" -c:v libx264 -c:a aac -strict -2 -f hls -hls_time 10 -hls_list_size 0 -hls_segment_filename \"%s/segment_%%3d.ts\" \"%s/master.m3u8\"",
-                    path.toString(), outputPath.toString(), outputPath.toString()
-            );
+    @Override
+    public VideoPage getPage(VideoStatus status, String cursor, int limit) {
+        int size = pageSize(limit);
+        return catalogPageCache.get(status, cursor, size, etag -> loadPage(status, cursor, size, etag));
+    }
 
-            ProcessBuilder processBuilder;
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                processBuilder = new ProcessBuilder("cmd.exe", "/c", ffmpegCmd);
-            } else {
-                processBuilder = new ProcessBuilder("sh", "-c", ffmpegCmd);
-            }
-            processBuilder.inheritIO();
-            Process process = processBuilder.start();
+    @Override
+    public String getPageEtag(VideoStatus status, String cursor, int limit) {
+        return catalogPageCache.etag(status, cursor, pageSize(limit));
+    }
 
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                video.setStatus(VideoStatus.FAILED);
-                videoRepo.save(video);
-                throw new RuntimeException("Video processing failed!!");
-            }
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
 
-            video.setStatus(VideoStatus.COMPLETED);
-            videoRepo.save(video);
+    private VideoPage loadPage(VideoStatus status, String cursor, int size, String etag) {
+        String after = cursor == null || cursor.isEmpty() ? "" : decodeCursor(cursor);
+        // one row more than asked for tells whether there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<VideoResponse> rows = status == null
+                ? videoRepo.findPageAfter(after, limit)
+                : videoRepo.findPageByStatusAfter(status, after, limit);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = encodeCursor(rows.get(size - 1).getVideoId());
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(rows);
+            return new VideoPage(json, etag, nextCursor);
+        } catch (JsonProcessingException e) {
+            throw new VideoException("Could not serialize catalog page", e);
+        }
+    }
 
-            return new AsyncResult<>(videoId);
+    // opaque to clients, so the key behind it can change without breaking them
+    private static String encodeCursor(String videoId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(videoId.getBytes(StandardCharsets.UTF_8));
+    }
 
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            video.setStatus(VideoStatus.FAILED);
-            videoRepo.save(video);
-            throw new RuntimeException("Failed to start video processing", e);
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
         }
     }
 
+    @Override
+    public Future<String> processVideo(String videoId) {
+        Video video = this.get(videoId);
+        return transcodeScheduler.enqueue(video.getVideoId(), priority(video));
+    }
+
+    // long sources go behind the rest, so short clips are not stuck waiting for hours of encoding
+    private int priority(Video video) {
+        Double duration = video.getDurationSeconds();
+        return duration != null && duration >= LONG_SOURCE_SECONDS ? TranscodeJob.PRIORITY_LOW : TranscodeJob.PRIORITY_NORMAL;
+    }
+
     @Override
     public boolean isProcessingComplete(String videoId) {
-        Video video = videoRepo.findById(videoId).orElseThrow(() -> new RuntimeException("Video not found"));
+        Video video = get(videoId);
         return video.getStatus() == VideoStatus.COMPLETED || video.getStatus() == VideoStatus.FAILED;
     }
+
+    @Override
+    public boolean isOutputComplete(String outputKey) {
+        if (completedOutputs.getIfPresent(outputKey) != null) {
+            return true;
+        }
+        // only the final answer is kept, a pending output is asked again next time
+        boolean complete = videoRepo.existsByOutputKeyAndStatus(outputKey, VideoStatus.COMPLETED);
+        if (complete) {
+            completedOutputs.put(outputKey, Boolean.TRUE);
+        }
+        return complete;
+    }
+
+    @Override
+    public TranscodeProgress getProgress(String videoId) {
+        TranscodeProgress running = progressTracker.get(videoId);
+        if (running != null) {
+            return running;
+        }
+        return TranscodeProgress.of(videoId, get(videoId).getStatus());
+    }
+
+    @Override
+    public TranscodeProgress retranscode(String videoId, Integer watchdogSeconds) {
+        synchronized (storageLock) {
+            Video video = videoRepo.findById(videoId).orElseThrow(() -> new VideoNotFoundException(videoId));
+            if (video.getStatus() == VideoStatus.COMPLETED) {
+                throw new VideoBusyException(videoId, "has already been transcoded");
+            }
+            if (video.getStatus() != VideoStatus.FAILED) {
+                throw new VideoBusyException(videoId);
+            }
+            transcodeScheduler.checkCapacity();
+            video.setStatus(VideoStatus.UPLOADED);
+            videoRepo.save(video);
+            eventPublisher.publishEvent(new VideoStatusChangedEvent(videoId, VideoStatus.UPLOADED));
+        }
+        logger.info("Re-queueing failed video {}", videoId);
+        // somebody is waiting on this retry, it goes ahead of new uploads
+        transcodeScheduler.enqueue(videoId, TranscodeJob.PRIORITY_HIGH, watchdogSeconds);
+        return getProgress(videoId);
+    }
 }
\ No newline at end of file
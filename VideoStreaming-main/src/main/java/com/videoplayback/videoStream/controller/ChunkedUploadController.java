@@ -0,0 +1,54 @@
+package com.videoplayback.videoStream.controller;
+
+import com.videoplayback.videoStream.Payload.CreateUploadRequest;
+import com.videoplayback.videoStream.ingest.ChunkedUploadService;
+import com.videoplayback.videoStream.response.UploadSessionResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+// Resumable uploads: open a session, PUT chunks in any order, then complete it
+@RestController
+@RequestMapping("/api/v1/videos/uploads")
+@CrossOrigin("*")
+@Slf4j
+public class ChunkedUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> createUpload(@RequestBody CreateUploadRequest request) throws IOException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.create(request));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.status(uploadId));
+    }
+
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<UploadSessionResponse> putChunk(@PathVariable String uploadId,
+                                                          @PathVariable int index,
+                                                          @RequestHeader(value = "X-Chunk-Sha256", required = false) String sha256,
+                                                          HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.writeChunk(uploadId, index, request.getInputStream(), sha256));
+    }
+
+    // the file is hashed and handed over in the background, poll the session until it is COMPLETED
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadSessionResponse> completeUpload(@PathVariable String uploadId) {
+        return ResponseEntity.accepted().body(chunkedUploadService.complete(uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId) throws IOException {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
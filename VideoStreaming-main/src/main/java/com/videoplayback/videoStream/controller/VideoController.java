@@ -1,11 +1,34 @@
 package com.videoplayback.videoStream.controller;
 
 import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
 import com.videoplayback.videoStream.Payload.CustomMessage;
 import com.videoplayback.videoStream.Service.VideoService;
+import com.videoplayback.videoStream.event.VideoEventBroadcaster;
+import com.videoplayback.videoStream.exception.PlaylistNotReadyException;
 import com.videoplayback.videoStream.exception.ResourceNotFoundException;
+import com.videoplayback.videoStream.exception.TranscodeQueueFullException;
+import com.videoplayback.videoStream.exception.UploadRejectedException;
 import com.videoplayback.videoStream.exception.VideoException;
+import com.videoplayback.videoStream.ingest.IngestResult;
+import com.videoplayback.videoStream.ingest.MultipartIngestService;
+import com.videoplayback.videoStream.response.TranscodeProgress;
+import com.videoplayback.videoStream.response.VideoPage;
 import com.videoplayback.videoStream.response.VideoResponse;
+import com.videoplayback.videoStream.search.InvertedIndex;
+import com.videoplayback.videoStream.streaming.FileChannelPool;
+import com.videoplayback.videoStream.streaming.FileMetadata;
+import com.videoplayback.videoStream.streaming.FileMetadataCache;
+import com.videoplayback.videoStream.streaming.HlsPlaylist;
+import com.videoplayback.videoStream.streaming.PlaylistReloadWaiter;
+import com.videoplayback.videoStream.streaming.PooledFileResource;
+import com.videoplayback.videoStream.streaming.RangeRequestHandler;
+import com.videoplayback.videoStream.streaming.SegmentCache;
+import com.videoplayback.videoStream.streaming.ThumbnailResizeCache;
+import com.videoplayback.videoStream.transcode.HlsTranscoder;
+import com.videoplayback.videoStream.transcode.ThumbnailGenerator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,35 +37,61 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1")
-@CrossOrigin("*")
+@CrossOrigin(origins = "*", exposedHeaders = {"X-Next-Cursor", "X-Total-Count"})
 @Slf4j
 public class VideoController {
     private static final String CONTENT_TYPE_HLS = "application/vnd.apple.mpegurl";
     private static final String CONTENT_TYPE_MP2T = "video/mp2t";
+    private static final String CONTENT_TYPE_MP4 = "video/mp4";
+    private static final String CONTENT_TYPE_WEBP = "image/webp";
+    private static final String CONTENT_TYPE_VTT = "text/vtt";
     private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
 
 
 
     @Autowired
     private VideoService videoService;
+    @Autowired
+    private RangeRequestHandler rangeRequestHandler;
+    @Autowired
+    private SegmentCache segmentCache;
+    @Autowired
+    private FileMetadataCache fileMetadataCache;
+    @Autowired
+    private FileChannelPool fileChannelPool;
+    @Autowired
+    private MultipartIngestService multipartIngestService;
+    @Autowired
+    private PlaylistReloadWaiter playlistReloadWaiter;
+    @Autowired
+    private ThumbnailGenerator thumbnailGenerator;
+    @Autowired
+    private ThumbnailResizeCache thumbnailResizeCache;
+    @Autowired
+    private VideoEventBroadcaster videoEventBroadcaster;
     private final Logger logger = LoggerFactory.getLogger(VideoController.class);
     @Value("${files.video}")
     private String DIR;
@@ -50,144 +99,276 @@ public class VideoController {
     private String HSL_DIR;
     @Value("${files.thumbnail}")
     String THUMBNAIL_DIR;
+    @Value("${cache.playlist.processing-max-age-seconds}")
+    private long PROCESSING_PLAYLIST_MAX_AGE;
 
 
     @PostMapping("/videos/add")
-    public ResponseEntity<Object> createVideo(
-            @RequestParam("file") MultipartFile file,
-            @RequestParam("title") String title,
-            @RequestParam("description") String description) {
+    public ResponseEntity<Object> createVideo(HttpServletRequest request) {
         try {
+            videoService.checkUploadCapacity();
+
+            String videoId = UUID.randomUUID().toString();
+            IngestResult upload = multipartIngestService.ingest(request, videoId);
+            String title = upload.fields().get("title");
+            String description = upload.fields().get("description");
+            if (title == null || description == null) {
+                Files.deleteIfExists(upload.file().path());
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Both title and description are required");
+            }
             log.info("Creating new video with title: {}", title);
 
             Video video = Video.builder()
-                    .videoId(UUID.randomUUID().toString())
+                    .videoId(videoId)
                     .title(title)
                     .description(description)
                     .build();
 
-            Video savedVideo = videoService.save(video, file);
+            Video savedVideo = videoService.save(video, upload.file());
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(VideoResponse.fromEntity(savedVideo));
 
+        } catch (TranscodeQueueFullException | UploadRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error creating video: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new CustomMessage(false, "Failed to create video: " + e.getMessage()));
         }
     }
+    /**
+     * The catalog one page at a time; the cursor for the next page comes back in X-Next-Cursor
+     * and is absent on the last page. Unchanged pages are answered with 304 through the ETag,
+     * before the page is loaded.
+     */
     @GetMapping("/videos")
-    public ResponseEntity<List<VideoResponse>> getAllVideos() {
-        logger.debug("Fetching all videos");
-        return ResponseEntity.ok(
-                videoService.getAll().stream()
-                        .map(VideoResponse::fromEntity)
-                        .toList()
-        );
+    public ResponseEntity<byte[]> getAllVideos(@RequestParam(required = false) VideoStatus status,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int limit,
+                                               WebRequest request) {
+        logger.debug("Fetching videos, status {} cursor {}", status, cursor);
+        if (request.checkNotModified(videoService.getPageEtag(status, cursor, limit))) {
+            return null;
+        }
+        VideoPage page = videoService.getPage(status, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(page.etag());
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.json());
     }
 
+    // ranked matches of q, the number of matches comes back in X-Total-Count
+    @GetMapping("/videos/search")
+    public ResponseEntity<List<VideoResponse>> searchVideos(@RequestParam("q") String query,
+                                                            @RequestParam(required = false) VideoStatus status,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        logger.debug("Searching videos for '{}'", query);
+        InvertedIndex.Result result = videoService.search(query, status, page, size);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.total()))
+                .body(result.hits().stream().map(InvertedIndex.Hit::video).toList());
+    }
+
+    // the whole source, read through the shared file channels like every other byte-serving route
     @GetMapping("/stream/{videoId}")
-    public ResponseEntity<Resource> streamVideo(@PathVariable String videoId) {
+    public void streamVideo(@PathVariable String videoId,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
         Video video = videoService.get(videoId);
-        String contentType=video.getContentType();
-        String filePath = video.getFilePath();
-        if(contentType ==null){
-            contentType="application/octet-stream";
+        Path path = Paths.get(video.getFilePath());
+        String contentType = video.getContentType() != null ? video.getContentType() : DEFAULT_CONTENT_TYPE;
+        FileMetadata metadata = fileMetadataCache.get(path);
+        if (!metadata.exists()) {
+            throw new ResourceNotFoundException("Resource not found: " + path);
         }
-        Resource resource = new FileSystemResource(filePath);
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(resource);
+        rangeRequestHandler.serve(path, metadata, contentType, CacheControl.noCache(), request, response);
     }
 
     //Send Videos In Required bytes
 
 
     @GetMapping("/stream/range/{videoId}")
-    public ResponseEntity<Resource> streamVideoRange(@PathVariable String videoId,
-                                                     @RequestHeader(value = "Range", required = false) String range) {
-
-
+    public void streamVideoRange(@PathVariable String videoId,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         Video video = videoService.get(videoId);
         Path path = Paths.get(video.getFilePath());
+        String contentType = video.getContentType() != null ? video.getContentType() : DEFAULT_CONTENT_TYPE;
+        log.debug("Range Header: {}", request.getHeader(HttpHeaders.RANGE));
 
-        Resource resource = new FileSystemResource(path);
-        String contentType = video.getContentType() != null ? video.getContentType() : "application/octet-stream";
-        long fileLength = path.toFile().length();
-        System.out.println("Range Header: " + range+"-"+fileLength);
-
-        if (range == null) {
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .body(resource);
+        // sources never change once stored
+        FileMetadata metadata = fileMetadataCache.get(path);
+        if (!metadata.exists()) {
+            throw new ResourceNotFoundException("Resource not found: " + path);
         }
-
-        long rangeStart;
-        long rangeEnd;
-
-        try {
-            String[] ranges = range.replace("bytes=", "").split("-");
-            rangeStart = Long.parseLong(ranges[0]);
-            rangeEnd = ranges.length > 1 ? Long.parseLong(ranges[1]) : rangeStart + AppConstants.CHUNK_SIZE - 1;
-            if (rangeEnd >= fileLength) {
-                rangeEnd = fileLength - 1;
+        rangeRequestHandler.serve(path, metadata, contentType, CacheControl.noCache(), request, response);
+    }
+    @GetMapping("/stream/{videoId}/master.m3u8")
+    public DeferredResult<ResponseEntity<Resource>> getHLSMasterPlaylist(@PathVariable String videoId,
+                                                                        @RequestParam(name = "_HLS_msn", required = false) Long mediaSequence) throws IOException {
+        return servePlaylist(videoId, HlsTranscoder.MASTER_PLAYLIST, mediaSequence);
+    }
+    /**
+     * Playlists of a video that is still processing are served as they grow. A request for a
+     * playlist that does not exist yet, or for a segment (_HLS_msn) not listed yet, is held until
+     * the transcoder gets there or the blocking reload times out.
+     */
+    private DeferredResult<ResponseEntity<Resource>> servePlaylist(String videoId, String name, Long mediaSequence) throws IOException {
+        Video video = videoService.get(videoId);
+        if (video.getStatus() == VideoStatus.COMPLETED || video.getStatus() == VideoStatus.FAILED) {
+            DeferredResult<ResponseEntity<Resource>> result = new DeferredResult<>();
+            result.setResult(serveHLSResource(video, name, CONTENT_TYPE_HLS));
+            return result;
+        }
+        Path path = Paths.get(HSL_DIR, video.outputKey(), name);
+        return playlistReloadWaiter.await(path, mediaSequence != null ? mediaSequence : -1, () -> {
+            if (!Files.exists(path)) {
+                throw new PlaylistNotReadyException(videoId);
             }
+            // the status has probably moved on while the request was held
+            return serveHLSResource(videoService.get(videoId), name, CONTENT_TYPE_HLS);
+        });
+    }
+    private ResponseEntity<Resource> serveHLSResource(String videoId, String name, String contentType) throws IOException {
+        return serveHLSResource(videoService.get(videoId), name, contentType);
+    }
+    // output is stored per asset, videos uploaded from the same file share it
+    private ResponseEntity<Resource> serveHLSResource(Video video, String name, String contentType) throws IOException {
+        String outputKey = video.outputKey();
+        SegmentCache.Entry cached = segmentCache.get(outputKey, name);
+        if (cached != null) {
+            // only output of completed videos is ever cached
+            return hlsResponse(contentType, cached.asResource(), cached.data().capacity(), cached.lastModified(), true, name);
+        }
 
-            System.out.println("Range Start: " + rangeStart);
-            System.out.println("Range End: " + rangeEnd);
-
-            InputStream inputStream = Files.newInputStream(path);
-            inputStream.skip(rangeStart);
-            byte[] data = new byte[(int) (rangeEnd - rangeStart + 1)];
-            int bytesRead = inputStream.read(data);
-            inputStream.close();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add("Content-Range", "bytes " + rangeStart + "-" + rangeEnd + "/" + fileLength);
-            headers.add("Cache-Control", "no-cache, no-store, must-revalidate");
-            headers.add("Pragma", "no-cache");
-            headers.add("Expires", "0");
-            headers.add("X-Content-Type-Options", "nosniff");
-            headers.setContentLength(bytesRead);
-
-            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .body(new ByteArrayResource(data));
+        // only finished output is cached, ffmpeg may still be writing to a video that is processing
+        boolean completed = video.getStatus() == VideoStatus.COMPLETED;
+        Path path = Paths.get(HSL_DIR, outputKey, name);
+        FileMetadata metadata = completed ? fileMetadataCache.get(path) : FileMetadata.read(path);
+        if (!metadata.exists()) {
+            throw new ResourceNotFoundException("Resource not found: " + path);
+        }
 
-        } catch (IOException ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        if (completed) {
+            SegmentCache.Entry entry = segmentCache.load(outputKey, name, path);
+            if (entry != null) {
+                return hlsResponse(contentType, entry.asResource(), entry.data().capacity(), entry.lastModified(), true, name);
+            }
+        }
+        Resource resource = new PooledFileResource(fileChannelPool, path, metadata);
+        if (!completed && name.endsWith(".m3u8")) {
+            // still growing: start players at the beginning and advertise blocking reloads
+            String playlist = HlsPlaylist.withLiveTags(Files.readString(path));
+            resource = new ByteArrayResource(playlist.getBytes(StandardCharsets.UTF_8));
         }
+        return hlsResponse(contentType, resource, metadata.size(), metadata.lastModified(), completed, name);
     }
-    @GetMapping("/stream/{videoId}/master.m3u8")
-    public ResponseEntity<Resource> getHLSMasterPlaylist(@PathVariable String videoId) {
-        Path playlistPath = Paths.get(HSL_DIR, videoId, "master.m3u8");
-        return serveHLSResource(playlistPath, CONTENT_TYPE_HLS);
+    private ResponseEntity<Resource> hlsResponse(String contentType, Resource resource, long length, long lastModified,
+                                                 boolean completed, String name) {
+        // conditional GETs against the ETag / Last-Modified are answered with 304 by Spring MVC
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, contentType)
+                .cacheControl(hlsCacheControl(completed, name))
+                .eTag(RangeRequestHandler.etag(length, lastModified))
+                .lastModified(lastModified);
+        if (resource instanceof PooledFileResource) {
+            // known already, saves Spring a stat of the file
+            response.contentLength(length);
+        }
+        return response.body(resource);
+    }
+    private CacheControl hlsCacheControl(boolean completed, String name) {
+        if (completed) {
+            return CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        }
+        // a failed run retranscoded later writes the same segment names again, so until the
+        // video is completed segments are revalidated against their ETag
+        if (!name.endsWith(".m3u8")) {
+            return CacheControl.noCache();
+        }
+        return CacheControl.maxAge(PROCESSING_PLAYLIST_MAX_AGE, TimeUnit.SECONDS);
+    }
+    @GetMapping("/stream/{videoId}/{segment}.ts")
+    public ResponseEntity<Resource> getSegmentFile(@PathVariable String videoId
+    ,@PathVariable String segment) throws IOException {
+        return serveHLSResource(videoId, segment + ".ts", CONTENT_TYPE_MP2T);
+    }
+    // one media playlist and its segments per rendition of the ladder in master.m3u8
+    @GetMapping("/stream/{videoId}/{rendition:[A-Za-z0-9_-]+}/index.m3u8")
+    public DeferredResult<ResponseEntity<Resource>> getRenditionPlaylist(@PathVariable String videoId,
+                                                                        @PathVariable String rendition,
+                                                                        @RequestParam(name = "_HLS_msn", required = false) Long mediaSequence) throws IOException {
+        return servePlaylist(videoId, rendition + "/" + HlsTranscoder.MEDIA_PLAYLIST, mediaSequence);
     }
-    private ResponseEntity<Resource> serveHLSResource(Path path, String contentType) {
-        if (!Files.exists(path)) {
+    @GetMapping("/stream/{videoId}/{rendition:[A-Za-z0-9_-]+}/{segment}.ts")
+    public ResponseEntity<Resource> getRenditionSegment(@PathVariable String videoId,
+                                                        @PathVariable String rendition,
+                                                        @PathVariable String segment) throws IOException {
+        return serveHLSResource(videoId, rendition + "/" + segment + ".ts", CONTENT_TYPE_MP2T);
+    }
+
+    // fMP4 / CMAF packaging: one file per rendition, players fetch the fragments by byte range
+    @GetMapping("/stream/{videoId}/{rendition:[A-Za-z0-9_-]+}/{file}.mp4")
+    public void getRenditionMedia(@PathVariable String videoId,
+                                  @PathVariable String rendition,
+                                  @PathVariable String file,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        Video video = videoService.get(videoId);
+        Path path = Paths.get(HSL_DIR, video.outputKey(), rendition, file + ".mp4");
+        // while processing the file grows, but the byte ranges a playlist lists never change
+        boolean completed = video.getStatus() == VideoStatus.COMPLETED;
+        FileMetadata metadata = completed ? fileMetadataCache.get(path) : FileMetadata.read(path);
+        if (!metadata.exists()) {
             throw new ResourceNotFoundException("Resource not found: " + path);
         }
+        CacheControl cacheControl = completed
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        rangeRequestHandler.serve(path, metadata, CONTENT_TYPE_MP4, cacheControl, request, response);
+    }
+
+    @DeleteMapping("/videos/{videoId}")
+    public ResponseEntity<Void> deleteVideo(@PathVariable String videoId) {
+        videoService.delete(videoId);
+        return ResponseEntity.noContent().build();
+    }
 
+    @GetMapping("/videos/{videoId}/progress")
+    public ResponseEntity<TranscodeProgress> getProgress(@PathVariable String videoId) {
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_TYPE, contentType)
-                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
-                .body(new FileSystemResource(path));
+                .cacheControl(CacheControl.noStore())
+                .body(videoService.getProgress(videoId));
     }
-    @GetMapping("/stream/{videoId}/{segment}.ts")
-    public ResponseEntity<Resource> getSegmentFile(@PathVariable String videoId
-    ,@PathVariable String segment){
-        Path path = Paths.get(HSL_DIR,videoId,segment+".ts");
-        if (!Files.exists(path)) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
-        Resource resource = new FileSystemResource(path);
-        return ResponseEntity
-                .ok()
-                .header(HttpHeaders.CONTENT_TYPE,"video/mp2t")
-                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
-                .body(resource);
 
+    // Server-Sent Events with the status and progress of every video
+    @GetMapping(value = "/videos/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter catalogEvents() {
+        return videoEventBroadcaster.subscribeCatalog();
+    }
+
+    // the same for one video, starting with its current state and ending once it is completed
+    @GetMapping(value = "/videos/{videoId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter videoEvents(@PathVariable String videoId) {
+        return videoEventBroadcaster.subscribe(videoId);
+    }
+
+    /**
+     * Retries a failed transcode; {@code watchdogSeconds} overrides how long ffmpeg may go without
+     * progress before it is killed, e.g. for a source that decodes very slowly.
+     */
+    @PostMapping("/videos/{videoId}/transcode")
+    public ResponseEntity<TranscodeProgress> retranscode(@PathVariable String videoId,
+                                                         @RequestParam(required = false) Integer watchdogSeconds) {
+        if (watchdogSeconds != null && watchdogSeconds <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted().body(videoService.retranscode(videoId, watchdogSeconds));
     }
 
     @GetMapping("/{videoId}")
@@ -196,26 +377,83 @@ public class VideoController {
         Video video = videoService.get(videoId);
         return ResponseEntity.ok(video);
     }
+    /**
+     * Thumbnails, their WebP sizes, preview sprites and the sprite track. With a width, a video
+     * thumbnail is answered with the smallest WebP copy at least that wide, or else resized from
+     * the JPEG through the resize cache.
+     */
     @GetMapping("/thumbnails/{filename}")
-    public ResponseEntity<Resource> getThumbnail(@PathVariable String filename) {
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String filename,
+                                                 @RequestParam(required = false) Integer width) {
         try {
-            Path thumbnailPath = Paths.get(THUMBNAIL_DIR).resolve(filename);
-            Resource resource = new UrlResource(thumbnailPath.toUri());
-
-            if (!resource.exists()) {
+            Path thumbnailDir = Paths.get(THUMBNAIL_DIR).toAbsolutePath().normalize();
+            Path thumbnailPath = thumbnailDir.resolve(filename).normalize();
+            if (!thumbnailPath.startsWith(thumbnailDir)) {
                 throw new ResourceNotFoundException("Thumbnail not found: " + filename);
             }
+            FileMetadata metadata = fileMetadataCache.get(thumbnailPath);
+
+            if (!metadata.exists() && ThumbnailGenerator.isVideoThumbnail(filename)) {
+                // still being generated by the transcode job, don't let clients cache the stand-in
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(new FileSystemResource(Paths.get(THUMBNAIL_DIR, ThumbnailGenerator.PLACEHOLDER)));
+            }
+            if (!metadata.exists()) {
+                throw new ResourceNotFoundException("Thumbnail not found: " + filename);
+            }
+
+            if (width != null && ThumbnailGenerator.isVideoThumbnail(filename)) {
+                Integer size = thumbnailGenerator.sizeFor(width);
+                if (size != null) {
+                    String sized = ThumbnailGenerator.sizedFileName(ThumbnailGenerator.outputKeyOf(filename), size);
+                    Path sizedPath = thumbnailDir.resolve(sized);
+                    FileMetadata sizedMetadata = fileMetadataCache.get(sizedPath);
+                    if (sizedMetadata.exists()) {
+                        return thumbnailResponse(sized, new FileSystemResource(sizedPath), sizedMetadata.size(),
+                                sizedMetadata.lastModified());
+                    }
+                }
+                // no copy that size, e.g. the source is narrower or it predates WebP sizes
+                byte[] resized = thumbnailResizeCache.get(thumbnailPath, metadata, width);
+                return thumbnailResponse(filename, new ByteArrayResource(resized), resized.length, metadata.lastModified());
+            }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+            // with the length given, Spring doesn't stat the file again
+            return thumbnailResponse(filename, new FileSystemResource(thumbnailPath), metadata.size(), metadata.lastModified());
 
-        } catch (Exception e) {
+        } catch (IOException e) {
             log.error("Error fetching thumbnail {}: {}", filename, e.getMessage(), e);
             throw new VideoException("Error fetching thumbnail", e);
         }
     }
+    private ResponseEntity<Resource> thumbnailResponse(String filename, Resource resource, long length, long lastModified) {
+        return ResponseEntity.ok()
+                .cacheControl(thumbnailCacheControl(filename))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
+                .contentType(thumbnailContentType(filename))
+                .contentLength(length)
+                .lastModified(lastModified)
+                .body(resource);
+    }
+    // like the HLS output: final once the video is completed, a retried transcode rewrites it before
+    private CacheControl thumbnailCacheControl(String filename) {
+        String outputKey = ThumbnailGenerator.ownerOf(filename);
+        if (outputKey != null && videoService.isOutputComplete(outputKey)) {
+            return CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        }
+        return CacheControl.noCache();
+    }
+    private MediaType thumbnailContentType(String filename) {
+        if (filename.endsWith(".webp")) {
+            return MediaType.parseMediaType(CONTENT_TYPE_WEBP);
+        }
+        if (filename.endsWith(".vtt")) {
+            return MediaType.parseMediaType(CONTENT_TYPE_VTT);
+        }
+        return MediaType.IMAGE_JPEG;
+    }
 
 
 }
@@ -0,0 +1,138 @@
+package com.videoplayback.videoStream.event;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * One open event stream. Frames queue up per subscriber and are written by a drain of its own on
+ * the writer pool, so a client that reads slowly or not at all only ever holds up itself. A subscriber that falls
+ * a whole queue behind is closed; its client reconnects and starts over from the current state.
+ */
+final class SseSubscriber {
+
+    // the bytes of one event, shared by every subscriber it goes to
+    record Frame(Set<ResponseBodyEmitter.DataWithMediaType> data, boolean last) {
+    }
+
+    private final SseEmitter emitter;
+    private final BlockingQueue<Supplier<Frame>> queue;
+    private final Executor writer;
+    private final Consumer<SseSubscriber> onClose;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SseSubscriber(SseEmitter emitter, int capacity, Executor writer, Consumer<SseSubscriber> onClose) {
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = writer;
+        this.onClose = onClose;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * Queues a frame without ever blocking the caller. The supplier runs on the drain, so a frame
+     * that has to be looked up first is read no earlier than the frames queued ahead of it.
+     * Returns false once the subscriber is closed, including when this frame overflowed it.
+     */
+    boolean offer(Supplier<Frame> frame) {
+        if (closed.get()) {
+            return false;
+        }
+        if (!queue.offer(frame)) {
+            close();
+            return false;
+        }
+        if (draining.compareAndSet(false, true)) {
+            execute(this::drain);
+        }
+        return true;
+    }
+
+    /**
+     * Drops the subscriber right away. The stream is completed by the drain once a write in
+     * progress returns, completing it here would wait for that write on a second writer thread.
+     */
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.accept(this);
+            if (draining.compareAndSet(false, true)) {
+                execute(this::complete);
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            Supplier<Frame> frame;
+            while (!closed.get() && (frame = queue.poll()) != null) {
+                if (!write(frame)) {
+                    // the stream has ended, draining stays set so nothing is written after it
+                    return;
+                }
+            }
+            if (closed.get()) {
+                queue.clear();
+                complete();
+                return;
+            }
+            draining.set(false);
+            // a frame queued or a close after the last check but before draining was cleared
+        } while ((!queue.isEmpty() || closed.get()) && draining.compareAndSet(false, true));
+    }
+
+    // a failed stream is dropped from the registry by its completion callback
+    private boolean write(Supplier<Frame> next) {
+        try {
+            Frame frame = next.get();
+            emitter.send(frame.data());
+            if (frame.last()) {
+                closed.set(true);
+                emitter.complete();
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            closed.set(true);
+            emitter.completeWithError(e);
+            return false;
+        } catch (IllegalStateException e) {
+            // completed meanwhile
+            closed.set(true);
+            return false;
+        } catch (RuntimeException e) {
+            closed.set(true);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void complete() {
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // completed meanwhile
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            // shutting down, every stream is completed anyway
+        }
+    }
+}
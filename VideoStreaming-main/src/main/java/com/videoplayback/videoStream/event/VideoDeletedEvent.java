@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.event;
+
+/**
+ * Published after a video has been deleted.
+ */
+public record VideoDeletedEvent(String videoId) {
+}
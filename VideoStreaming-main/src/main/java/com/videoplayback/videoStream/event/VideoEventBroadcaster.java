@@ -0,0 +1,219 @@
+package com.videoplayback.videoStream.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.Service.VideoService;
+import com.videoplayback.videoStream.event.SseSubscriber.Frame;
+import com.videoplayback.videoStream.response.TranscodeProgress;
+import com.videoplayback.videoStream.transcode.TranscodeProgressTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pushes status and progress changes as Server-Sent Events, for one video or the whole catalog.
+ * Subscribers are async requests that hold no servlet thread while idle, so a node keeps as many
+ * open as the connector accepts. Every event is serialized once and queued to each subscriber,
+ * whose frames are written in publishing order by a pool of sse.writer-threads platform threads,
+ * see {@link SseSubscriber}: publishing never waits for a client, and a stalled client holds up
+ * one writer thread, not the others. Writes block inside synchronized code in the emitter and
+ * the connector, which would pin the carrier of a virtual thread, so the writers are not virtual.
+ * <p>
+ * A video's stream starts with its current state and ends once it is completed or deleted.
+ */
+@Component
+public class VideoEventBroadcaster {
+    public static final String EVENT_STATUS = "status";
+    public static final String EVENT_PROGRESS = "progress";
+    public static final String EVENT_DELETED = "deleted";
+
+    @Autowired
+    private VideoService videoService;
+    @Autowired
+    private TranscodeProgressTracker progressTracker;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sse.timeout-ms}")
+    long TIMEOUT_MS;
+
+    @Value("${sse.reconnect-ms}")
+    long RECONNECT_MS;
+
+    @Value("${sse.queue-capacity}")
+    int QUEUE_CAPACITY;
+
+    @Value("${sse.writer-threads}")
+    int WRITER_THREADS;
+
+    private final Set<SseSubscriber> catalog = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<SseSubscriber>> byVideo = new ConcurrentHashMap<>();
+    // updatedAt of the last progress pushed per video, an idle job is not repeated every tick
+    private final Map<String, Instant> progressSent = new ConcurrentHashMap<>();
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(WRITER_THREADS,
+                runnable -> new Thread(runnable, "sse-writer-" + threadCount.incrementAndGet()));
+        Gauge.builder("sse.subscribers", this, VideoEventBroadcaster::subscribers)
+                .description("Open Server-Sent Event streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // clients reconnect, to another node if there is one
+        catalog.forEach(SseSubscriber::close);
+        byVideo.values().forEach(subscribers -> subscribers.forEach(SseSubscriber::close));
+        writers.shutdown();
+    }
+
+    /**
+     * Status and progress of every video. Starts with nothing but the reconnect delay; clients
+     * load the catalog itself from {@code GET /videos}.
+     */
+    public SseEmitter subscribeCatalog() {
+        SseSubscriber subscriber = subscriber(catalog::remove);
+        catalog.add(subscriber);
+        Frame subscribed = frame(SseEmitter.event().reconnectTime(RECONNECT_MS).comment("subscribed"), false);
+        subscriber.offer(() -> subscribed);
+        return subscriber.emitter();
+    }
+
+    /**
+     * Status and progress of one video, starting with its current state.
+     * Throws {@link com.videoplayback.videoStream.exception.VideoNotFoundException} before any
+     * stream is opened.
+     */
+    public SseEmitter subscribe(String videoId) {
+        videoService.get(videoId);
+        SseSubscriber subscriber = subscriber(self -> removeSubscriber(videoId, self));
+        byVideo.compute(videoId, (id, subscribers) -> {
+            Set<SseSubscriber> subscribed = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            subscribed.add(subscriber);
+            return subscribed;
+        });
+        // read when it is written, so it is never older than an event queued ahead of it
+        subscriber.offer(() -> {
+            TranscodeProgress current = videoService.getProgress(videoId);
+            return frame(SseEmitter.event().reconnectTime(RECONNECT_MS).name(EVENT_STATUS).data(json(current)),
+                    current.status() == VideoStatus.COMPLETED);
+        });
+        return subscriber.emitter();
+    }
+
+    @EventListener
+    public void onStatusChanged(VideoStatusChangedEvent event) {
+        TranscodeProgress running = event.status() == VideoStatus.PROCESSING ? progressTracker.get(event.videoId()) : null;
+        TranscodeProgress progress = running != null ? running : TranscodeProgress.of(event.videoId(), event.status());
+        broadcast(event.videoId(), EVENT_STATUS, progress, event.status() == VideoStatus.COMPLETED);
+    }
+
+    @EventListener
+    public void onDeleted(VideoDeletedEvent event) {
+        broadcast(event.videoId(), EVENT_DELETED, Map.of("videoId", event.videoId()), true);
+    }
+
+    /**
+     * Progress of the transcodes running here, for videos somebody listens to. Throttled to the
+     * tick instead of following every ffmpeg report.
+     */
+    @Scheduled(fixedDelayString = "${sse.progress-interval-ms}")
+    public void pushProgress() {
+        Set<String> running = progressTracker.running();
+        progressSent.keySet().retainAll(running);
+        for (String videoId : running) {
+            if (catalog.isEmpty() && !byVideo.containsKey(videoId)) {
+                continue;
+            }
+            TranscodeProgress progress = progressTracker.get(videoId);
+            if (progress == null || progress.updatedAt().equals(progressSent.put(videoId, progress.updatedAt()))) {
+                continue;
+            }
+            broadcast(videoId, EVENT_PROGRESS, progress, false);
+        }
+    }
+
+    // keeps proxies from closing idle streams and finds the ones whose client is gone
+    @Scheduled(fixedDelayString = "${sse.heartbeat-interval-ms}")
+    public void heartbeat() {
+        Frame heartbeat = frame(SseEmitter.event().comment("heartbeat"), false);
+        Supplier<Frame> frame = () -> heartbeat;
+        catalog.forEach(subscriber -> subscriber.offer(frame));
+        byVideo.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.offer(frame)));
+    }
+
+    public int subscribers() {
+        return catalog.size() + byVideo.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void broadcast(String videoId, String name, Object payload, boolean last) {
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(json(payload));
+        Frame catalogFrame = frame(event, false);
+        Supplier<Frame> toCatalog = () -> catalogFrame;
+        catalog.forEach(subscriber -> subscriber.offer(toCatalog));
+        Set<SseSubscriber> subscribers = last ? byVideo.remove(videoId) : byVideo.get(videoId);
+        if (subscribers != null) {
+            Frame videoFrame = new Frame(catalogFrame.data(), last);
+            Supplier<Frame> toVideo = () -> videoFrame;
+            subscribers.forEach(subscriber -> subscriber.offer(toVideo));
+        }
+    }
+
+    // new stream that leaves the registry through onClose however it ends
+    SseSubscriber subscriber(Consumer<SseSubscriber> onClose) {
+        SseEmitter emitter = newEmitter();
+        SseSubscriber subscriber = new SseSubscriber(emitter, QUEUE_CAPACITY, writers, onClose);
+        Runnable remove = () -> onClose.accept(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return subscriber;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(TIMEOUT_MS);
+    }
+
+    // built once per event, every subscriber is written the same bytes
+    private static Frame frame(SseEmitter.SseEventBuilder event, boolean last) {
+        return new Frame(event.build(), last);
+    }
+
+    private void removeSubscriber(String videoId, SseSubscriber subscriber) {
+        byVideo.computeIfPresent(videoId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private String json(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + payload, e);
+        }
+    }
+}
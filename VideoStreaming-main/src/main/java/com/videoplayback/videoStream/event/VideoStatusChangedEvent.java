@@ -0,0 +1,9 @@
+package com.videoplayback.videoStream.event;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+
+/**
+ * Published whenever a video is created or moves to another {@link VideoStatus}.
+ */
+public record VideoStatusChangedEvent(String videoId, VideoStatus status) {
+}
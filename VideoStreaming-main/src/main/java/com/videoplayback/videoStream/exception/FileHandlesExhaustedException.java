@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.exception;
+
+public class FileHandlesExhaustedException extends VideoException {
+    public FileHandlesExhaustedException(int limit) {
+        super(String.format("All %d file handles for streaming are in use, try again shortly", limit));
+    }
+}
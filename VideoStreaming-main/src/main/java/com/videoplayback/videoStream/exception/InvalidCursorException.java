@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.exception;
+
+public class InvalidCursorException extends VideoException {
+    public InvalidCursorException(String cursor) {
+        super("Invalid page cursor: " + cursor);
+    }
+}
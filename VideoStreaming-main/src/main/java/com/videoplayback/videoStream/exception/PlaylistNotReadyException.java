@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.exception;
+
+public class PlaylistNotReadyException extends VideoException {
+    public PlaylistNotReadyException(String videoId) {
+        super("Video " + videoId + " is still being processed, its playlist is not available yet");
+    }
+}
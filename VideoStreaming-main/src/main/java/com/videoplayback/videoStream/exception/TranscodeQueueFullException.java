@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.exception;
+
+public class TranscodeQueueFullException extends VideoException {
+    public TranscodeQueueFullException(long queued) {
+        super(String.format("Transcoding queue is full (%d jobs waiting), try again later", queued));
+    }
+}
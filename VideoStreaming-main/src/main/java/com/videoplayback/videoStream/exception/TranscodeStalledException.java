@@ -0,0 +1,9 @@
+package com.videoplayback.videoStream.exception;
+
+import java.time.Duration;
+
+public class TranscodeStalledException extends VideoException {
+    public TranscodeStalledException(String description, Duration stallTimeout) {
+        super(description + " made no progress for " + stallTimeout.toSeconds() + "s and was killed");
+    }
+}
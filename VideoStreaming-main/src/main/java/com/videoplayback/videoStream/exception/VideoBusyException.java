@@ -0,0 +1,11 @@
+package com.videoplayback.videoStream.exception;
+
+public class VideoBusyException extends VideoException {
+    public VideoBusyException(String videoId) {
+        super("Video " + videoId + " is still being processed, try again once it has finished");
+    }
+
+    public VideoBusyException(String videoId, String message) {
+        super("Video " + videoId + " " + message);
+    }
+}
@@ -0,0 +1,350 @@
+package com.videoplayback.videoStream.ingest;
+
+import com.videoplayback.videoStream.Entity.UploadChunk;
+import com.videoplayback.videoStream.Entity.UploadSession;
+import com.videoplayback.videoStream.Entity.UploadStatus;
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Payload.CreateUploadRequest;
+import com.videoplayback.videoStream.Reposetory.UploadChunkRepo;
+import com.videoplayback.videoStream.Reposetory.UploadSessionRepo;
+import com.videoplayback.videoStream.Service.VideoService;
+import com.videoplayback.videoStream.exception.ResourceNotFoundException;
+import com.videoplayback.videoStream.exception.UploadRejectedException;
+import com.videoplayback.videoStream.response.UploadSessionResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resumable uploads in fixed-size chunks. The target file is preallocated when the session is
+ * created and every chunk is written straight to its own offset, so chunks can arrive in any
+ * order, in parallel, and the file is complete the moment the last one lands; there is no
+ * assembly copy. Received chunks are recorded in upload_chunk only after they are on disk, so a
+ * client that reconnects asks for the session and re-sends exactly what is missing.
+ * <p>
+ * Completing moves the session to COMPLETING, after which no chunk is accepted, and hashes the
+ * file in the background; the client polls the session until it is COMPLETED or FAILED.
+ */
+@Service
+public class ChunkedUploadService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private ExecutorService completer;
+
+    @Autowired
+    private UploadSessionRepo sessionRepo;
+    @Autowired
+    private UploadChunkRepo chunkRepo;
+    @Autowired
+    private VideoService videoService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${files.video}")
+    String DIR;
+
+    @Value("${upload.max-file-size}")
+    DataSize MAX_FILE_SIZE;
+
+    @Value("${upload.chunk-size}")
+    DataSize DEFAULT_CHUNK_SIZE;
+
+    @Value("${upload.session-ttl}")
+    Duration SESSION_TTL;
+
+    @Value("${upload.completion-threads}")
+    int COMPLETION_THREADS;
+
+    @Value("${upload.completing-timeout}")
+    Duration COMPLETING_TIMEOUT;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        completer = Executors.newFixedThreadPool(COMPLETION_THREADS,
+                runnable -> new Thread(runnable, "upload-complete-" + threadCount.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // interrupted sessions stay COMPLETING until purgeStale() opens them again
+        completer.shutdownNow();
+    }
+
+    public UploadSessionResponse create(CreateUploadRequest request) throws IOException {
+        if (request.getTitle() == null || request.getDescription() == null) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Both title and description are required");
+        }
+        if (request.getTotalSize() <= 0) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "totalSize must be positive");
+        }
+        if (request.getTotalSize() > MAX_FILE_SIZE.toBytes()) {
+            throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Upload exceeds the maximum size of " + MAX_FILE_SIZE.toMegabytes() + "MB");
+        }
+        videoService.checkUploadCapacity();
+
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : (int) DEFAULT_CHUNK_SIZE.toBytes();
+        chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+        int chunkCount = (int) ((request.getTotalSize() + chunkSize - 1) / chunkSize);
+
+        String videoId = UUID.randomUUID().toString();
+        String filename = request.getFilename() != null ? request.getFilename() : videoId;
+        Path target = Paths.get(StringUtils.cleanPath(DIR), videoId + MultipartIngestService.extension(filename) + ".part");
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            // sparse on most filesystems, the blocks are filled in as chunks arrive
+            file.setLength(request.getTotalSize());
+        }
+
+        Instant now = Instant.now();
+        UploadSession session = sessionRepo.save(UploadSession.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .videoId(videoId)
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .contentType(request.getContentType())
+                .originalFilename(filename)
+                .filePath(target.toString())
+                .totalSize(request.getTotalSize())
+                .chunkSize(chunkSize)
+                .chunkCount(chunkCount)
+                .status(UploadStatus.OPEN)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        logger.info("Opened upload {} for video {}: {} bytes in {} chunks", session.getUploadId(), videoId,
+                session.getTotalSize(), chunkCount);
+        return UploadSessionResponse.fromEntity(session, List.of());
+    }
+
+    public UploadSessionResponse status(String uploadId) {
+        UploadSession session = find(uploadId);
+        return UploadSessionResponse.fromEntity(session, chunkRepo.findChunkIndexes(uploadId));
+    }
+
+    /**
+     * Writes one chunk at its offset. Re-sending a chunk that was already received simply
+     * overwrites it with the same bytes, so retries are always safe.
+     */
+    public UploadSessionResponse writeChunk(String uploadId, int index, InputStream body,
+                                            String expectedSha256) throws IOException {
+        UploadSession session = find(uploadId);
+        if (session.getStatus() != UploadStatus.OPEN) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already complete");
+        }
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                    "Chunk " + index + " is outside 0.." + (session.getChunkCount() - 1));
+        }
+
+        long offset = (long) index * session.getChunkSize();
+        int expectedLength = (int) Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        MessageDigest digest = MultipartIngestService.sha256();
+        int written = 0;
+        long start = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(session.getFilePath()), StandardOpenOption.WRITE)) {
+            byte[] chunk = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            int n;
+            while ((n = body.read(chunk)) >= 0) {
+                if (written + n > expectedLength) {
+                    throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                            "Chunk " + index + " is longer than " + expectedLength + " bytes");
+                }
+                digest.update(chunk, 0, n);
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, offset + written);
+                }
+            }
+            if (written != expectedLength) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST,
+                        "Chunk " + index + " has " + written + " bytes, expected " + expectedLength);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Checksum mismatch for chunk " + index);
+            }
+            // only record the chunk once it is durable, a crash before this point means a resend
+            channel.force(false);
+
+            // a chunk that lands after completion started is not part of the upload
+            if (sessionRepo.touchOpen(uploadId, Instant.now()) == 0) {
+                throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already complete");
+            }
+            record(uploadId, index, written, sha256);
+        }
+        MultipartIngestService.recordUpload(meterRegistry, "chunked", written, System.nanoTime() - start);
+        return status(uploadId);
+    }
+
+    // retries of a chunk may race each other, whichever inserts second updates instead
+    private void record(String uploadId, int index, int size, String sha256) {
+        Instant now = Instant.now();
+        if (chunkRepo.update(uploadId, index, size, sha256, now) > 0) {
+            return;
+        }
+        try {
+            chunkRepo.saveAndFlush(UploadChunk.builder()
+                    .uploadId(uploadId)
+                    .chunkIndex(index)
+                    .size(size)
+                    .sha256(sha256)
+                    .receivedAt(now)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            chunkRepo.update(uploadId, index, size, sha256, now);
+        }
+    }
+
+    /**
+     * Checks every chunk is in and starts completing the upload. From here on chunks are
+     * rejected; the file is hashed and handed over by {@link #finish(UploadSession)}.
+     */
+    public UploadSessionResponse complete(String uploadId) {
+        UploadSession session = find(uploadId);
+        if (session.getStatus() != UploadStatus.OPEN) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT,
+                    "Upload " + uploadId + " is already " + session.getStatus().name().toLowerCase());
+        }
+        long received = chunkRepo.countByUploadId(uploadId);
+        if (received != session.getChunkCount()) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT,
+                    "Upload " + uploadId + " has " + received + " of " + session.getChunkCount() + " chunks");
+        }
+        videoService.checkUploadCapacity();
+
+        if (sessionRepo.transition(uploadId, UploadStatus.OPEN, UploadStatus.COMPLETING, Instant.now()) == 0) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already completing");
+        }
+        session.setStatus(UploadStatus.COMPLETING);
+        completer.execute(() -> finish(session));
+        return UploadSessionResponse.fromEntity(session, chunkRepo.findChunkIndexes(uploadId));
+    }
+
+    /**
+     * Hashes the file, moves it to its final name and hands it to the same pipeline as a
+     * single-shot upload. Off the request: hashing a file of several GB takes a while.
+     */
+    private void finish(UploadSession session) {
+        String uploadId = session.getUploadId();
+        try {
+            Path partial = Paths.get(session.getFilePath());
+            String name = partial.getFileName().toString();
+            Path target = partial.resolveSibling(name.substring(0, name.length() - ".part".length()));
+            String sha256 = sha256(partial);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            session.setFilePath(target.toString());
+
+            Video video = Video.builder()
+                    .videoId(session.getVideoId())
+                    .title(session.getTitle())
+                    .description(session.getDescription())
+                    .build();
+            IngestedFile file = new IngestedFile(target, session.getTotalSize(), sha256,
+                    session.getContentType(), session.getOriginalFilename());
+            videoService.save(video, file);
+
+            session.setStatus(UploadStatus.COMPLETED);
+            session.setUpdatedAt(Instant.now());
+            sessionRepo.save(session);
+            chunkRepo.deleteByUploadId(uploadId);
+            logger.info("Completed upload {} for video {}", uploadId, video.getVideoId());
+        } catch (Exception e) {
+            logger.warn("Could not complete upload {}: {}", uploadId, e.getMessage());
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            session.setStatus(UploadStatus.FAILED);
+            session.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            session.setUpdatedAt(Instant.now());
+            sessionRepo.save(session);
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        UploadSession session = find(uploadId);
+        if (session.getStatus() != UploadStatus.OPEN && session.getStatus() != UploadStatus.FAILED) {
+            throw new UploadRejectedException(HttpStatus.CONFLICT, "Upload " + uploadId + " is already complete");
+        }
+        discard(session);
+    }
+
+    @Scheduled(fixedDelayString = "${upload.session-cleanup-interval-ms}")
+    public void purgeStale() {
+        Instant now = Instant.now();
+        for (UploadSession session : sessionRepo.findByStatusAndUpdatedAtBefore(UploadStatus.COMPLETING,
+                now.minus(COMPLETING_TIMEOUT))) {
+            if (sessionRepo.transition(session.getUploadId(), UploadStatus.COMPLETING, UploadStatus.OPEN, now) > 0) {
+                logger.info("Re-opening upload {}, its completion never finished", session.getUploadId());
+            }
+        }
+        Instant cutoff = now.minus(SESSION_TTL);
+        for (UploadStatus status : List.of(UploadStatus.OPEN, UploadStatus.FAILED)) {
+            for (UploadSession session : sessionRepo.findByStatusAndUpdatedAtBefore(status, cutoff)) {
+                try {
+                    logger.info("Discarding abandoned upload {}", session.getUploadId());
+                    discard(session);
+                } catch (IOException e) {
+                    logger.warn("Could not discard upload {}: {}", session.getUploadId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        Files.deleteIfExists(Paths.get(session.getFilePath()));
+        chunkRepo.deleteByUploadId(session.getUploadId());
+        sessionRepo.delete(session);
+    }
+
+    private UploadSession find(String uploadId) {
+        return sessionRepo.findById(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest = MultipartIngestService.sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,9 @@
+package com.videoplayback.videoStream.ingest;
+
+import java.util.Map;
+
+/**
+ * Outcome of a streamed multipart upload: the stored file plus the plain form fields.
+ */
+public record IngestResult(IngestedFile file, Map<String, String> fields) {
+}
@@ -0,0 +1,10 @@
+package com.videoplayback.videoStream.ingest;
+
+import java.nio.file.Path;
+
+/**
+ * An upload that has been written to its final location, with the size and SHA-256
+ * computed on the way in.
+ */
+public record IngestedFile(Path path, long size, String sha256, String contentType, String originalFilename) {
+}
@@ -0,0 +1,179 @@
+package com.videoplayback.videoStream.ingest;
+
+import com.videoplayback.videoStream.exception.UploadRejectedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a multipart upload straight off the request body. The file part is written to its final
+ * place under {@code files.video} in one pass while its SHA-256 and size are computed, instead of
+ * being spooled to a temp file by the servlet container and copied afterwards.
+ */
+@Service
+public class MultipartIngestService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+    private static final String FILE_FIELD = "file";
+
+    private final Logger logger = LoggerFactory.getLogger(MultipartIngestService.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${files.video}")
+    String DIR;
+
+    @Value("${upload.max-file-size}")
+    DataSize MAX_FILE_SIZE;
+
+    public IngestResult ingest(HttpServletRequest request, String videoId) throws IOException {
+        String boundary = MultipartStream.boundary(request.getContentType());
+        if (boundary == null) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Expected a multipart/form-data upload");
+        }
+        if (request.getContentLengthLong() > MAX_FILE_SIZE.toBytes() + MAX_FIELD_BYTES) {
+            throw tooLarge();
+        }
+
+        MultipartStream multipart = new MultipartStream(request.getInputStream(), boundary, BUFFER_SIZE);
+        Map<String, String> fields = new LinkedHashMap<>();
+        IngestedFile file = null;
+        try {
+            Map<String, String> headers;
+            while ((headers = multipart.nextPart()) != null) {
+                Map<String, String> disposition = MultipartStream.parameters(
+                        headers.getOrDefault("content-disposition", ""));
+                String name = disposition.get("name");
+                String filename = disposition.get("filename");
+                if (FILE_FIELD.equals(name) && filename != null && file == null) {
+                    file = store(multipart.partBody(), videoId, filename, headers.get("content-type"));
+                } else if (name != null && filename == null) {
+                    fields.put(name, readField(multipart.partBody()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (file != null) {
+                Files.deleteIfExists(file.path());
+            }
+            throw e;
+        }
+
+        if (file == null) {
+            throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Missing file part");
+        }
+        return new IngestResult(file, fields);
+    }
+
+    private IngestedFile store(InputStream body, String videoId, String filename, String contentType) throws IOException {
+        Path target = Paths.get(StringUtils.cleanPath(DIR), videoId + extension(filename));
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        MessageDigest digest = sha256();
+        long start = System.nanoTime();
+        long size = 0;
+
+        try (FileChannel channel = FileChannel.open(partial,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] chunk = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            int n;
+            while ((n = body.read(chunk)) >= 0) {
+                size += n;
+                if (size > MAX_FILE_SIZE.toBytes()) {
+                    throw tooLarge();
+                }
+                digest.update(chunk, 0, n);
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        long elapsed = System.nanoTime() - start;
+        recordUpload(meterRegistry, "multipart", size, elapsed);
+        logger.info("Stored upload {} for video {}: {} bytes in {} ms", filename, videoId, size,
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        return new IngestedFile(target, size, HexFormat.of().formatHex(digest.digest()), contentType, filename);
+    }
+
+    /**
+     * Bytes, time and throughput of one upload, or of one chunk of a resumable upload.
+     */
+    static void recordUpload(MeterRegistry meterRegistry, String path, long bytes, long nanos) {
+        meterRegistry.counter("upload.bytes", "path", path).increment(bytes);
+        meterRegistry.timer("upload.duration", "path", path).record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > 0) {
+            DistributionSummary.builder("upload.throughput")
+                    .baseUnit("bytes/s")
+                    .tag("path", path)
+                    .register(meterRegistry)
+                    .record(bytes * 1e9 / nanos);
+        }
+    }
+
+    private String readField(InputStream body) throws IOException {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        int n;
+        while ((n = body.read(chunk)) >= 0) {
+            value.write(chunk, 0, n);
+            if (value.size() > MAX_FIELD_BYTES) {
+                throw new UploadRejectedException(HttpStatus.BAD_REQUEST, "Form field too large");
+            }
+        }
+        return value.toString(StandardCharsets.UTF_8);
+    }
+
+    private UploadRejectedException tooLarge() {
+        return new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Upload exceeds the maximum size of " + MAX_FILE_SIZE.toMegabytes() + "MB");
+    }
+
+    public static String extension(String filename) {
+        String extension = StringUtils.getFilenameExtension(StringUtils.cleanPath(filename));
+        if (extension == null || !extension.matches("[A-Za-z0-9]{1,8}")) {
+            return "";
+        }
+        return "." + extension.toLowerCase();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.videoplayback.videoStream.ingest;
+
+import com.videoplayback.videoStream.exception.UploadRejectedException;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Forward-only reader for a multipart/form-data body. Parts are handed out one at a time as
+ * streams over a single fixed buffer, so a part of any size passes through without being
+ * spooled to memory or to a temp file.
+ */
+public class MultipartStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    public MultipartStream(InputStream in, String boundary, int bufferSize) {
+        // the body starts with "--boundary" rather than "\r\n--boundary", so every delimiter
+        // including the first one looks the same once a CRLF is put in front
+        this.in = new SequenceInputStream(new ByteArrayInputStream(CRLF), in);
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.buffer = new byte[Math.max(bufferSize, delimiter.length * 2 + MAX_HEADER_BYTES)];
+    }
+
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            return null;
+        }
+        return parameters(contentType).get("boundary");
+    }
+
+    /**
+     * Moves to the next part, skipping whatever is left of the current one.
+     * Returns the part's headers with lower-cased names, or {@code null} after the last part.
+     */
+    public Map<String, String> nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current == null) {
+            current = new PartInputStream();
+        }
+        current.skipToEnd();
+
+        // after a delimiter comes either "--" (end of the body) or CRLF and the part headers
+        require(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        skipLine();
+        Map<String, String> headers = readHeaders();
+        current = new PartInputStream();
+        return headers;
+    }
+
+    public InputStream partBody() {
+        return current;
+    }
+
+    public static Map<String, String> parameters(String headerValue) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String token : headerValue.split(";")) {
+            int eq = token.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String name = token.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            String value = token.substring(eq + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        int consumed = 0;
+        while (true) {
+            int lineEnd = findLineEnd();
+            String line = new String(buffer, head, lineEnd - head, StandardCharsets.UTF_8);
+            consumed += lineEnd - head + 2;
+            head = lineEnd + 2;
+            if (line.isEmpty()) {
+                return headers;
+            }
+            if (consumed > MAX_HEADER_BYTES) {
+                throw malformed("Multipart part headers too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        head = findLineEnd() + 2;
+    }
+
+    private int findLineEnd() throws IOException {
+        while (true) {
+            int index = indexOf(CRLF, head, tail);
+            if (index >= 0) {
+                return index;
+            }
+            if (!fill()) {
+                throw malformed("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    private void require(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                throw malformed("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    /**
+     * Compacts the buffer and reads more input. Returns false once the input is exhausted.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (tail == buffer.length) {
+            throw malformed("Multipart line too long");
+        }
+        int n = in.read(buffer, tail, buffer.length - tail);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        tail += n;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        int last = to - pattern.length;
+        for (int i = Math.max(from, head); i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            if (Arrays.equals(buffer, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static UploadRejectedException malformed(String message) {
+        return new UploadRejectedException(HttpStatus.BAD_REQUEST, message);
+    }
+
+    /**
+     * Body of the current part, ends right before the next delimiter.
+     */
+    private class PartInputStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int delimiterAt = indexOf(delimiter, head, tail);
+                int available = delimiterAt >= 0
+                        ? delimiterAt - head
+                        // hold back enough bytes to recognise a delimiter split across two reads
+                        : tail - head - (delimiter.length - 1);
+                if (available > 0) {
+                    int n = Math.min(available, len);
+                    System.arraycopy(buffer, head, b, off, n);
+                    head += n;
+                    return n;
+                }
+                if (delimiterAt >= 0) {
+                    head += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+                if (!fill()) {
+                    throw malformed("Multipart body ended inside a part");
+                }
+            }
+        }
+
+        void skipToEnd() throws IOException {
+            byte[] scratch = new byte[8192];
+            while (read(scratch, 0, scratch.length) >= 0) {
+                // discard
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.videoplayback.videoStream.response;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+
+import java.time.Instant;
+
+/**
+ * How far the transcode of a video has got. {@code fps} and {@code speed} (x realtime) are the
+ * current rates summed over every ffmpeg process of the job; {@code etaSeconds} is null while
+ * there is nothing to estimate from, {@code updatedAt} null when no job is running.
+ */
+public record TranscodeProgress(String videoId, VideoStatus status, String stage, double percent,
+                                double fps, double speed, Long etaSeconds, Instant updatedAt) {
+
+    // what the status alone says, for videos without a running job on this node
+    public static TranscodeProgress of(String videoId, VideoStatus status) {
+        if (status == null) {
+            // rows from before videos had a status never got one, they are still waiting for a transcode
+            return of(videoId, VideoStatus.UPLOADED);
+        }
+        return switch (status) {
+            case UPLOADED -> new TranscodeProgress(videoId, status, "queued", 0, 0, 0, null, null);
+            // running on another node, only the status is shared
+            case PROCESSING -> new TranscodeProgress(videoId, status, "encoding", 0, 0, 0, null, null);
+            case COMPLETED -> new TranscodeProgress(videoId, status, "done", 100, 0, 0, 0L, null);
+            case FAILED -> new TranscodeProgress(videoId, status, "failed", 0, 0, 0, null, null);
+        };
+    }
+}
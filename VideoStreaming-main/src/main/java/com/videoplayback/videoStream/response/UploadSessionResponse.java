@@ -0,0 +1,34 @@
+package com.videoplayback.videoStream.response;
+
+import com.videoplayback.videoStream.Entity.UploadSession;
+import com.videoplayback.videoStream.Entity.UploadStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UploadSessionResponse {
+    private String uploadId;
+    private String videoId;
+    private long totalSize;
+    private int chunkSize;
+    private int chunkCount;
+    private UploadStatus status;
+    private List<Integer> receivedChunks;
+    private String error;
+
+    public static UploadSessionResponse fromEntity(UploadSession session, List<Integer> receivedChunks) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.getUploadId())
+                .videoId(session.getVideoId())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .status(session.getStatus())
+                .receivedChunks(receivedChunks)
+                .error(session.getError())
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.videoplayback.videoStream.response;
+
+/**
+ * One page of the catalog, already serialized to JSON. {@code nextCursor} is null on the last page.
+ */
+public record VideoPage(byte[] json, String etag, String nextCursor) {
+}
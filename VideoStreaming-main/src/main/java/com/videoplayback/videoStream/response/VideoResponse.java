@@ -2,11 +2,14 @@ package com.videoplayback.videoStream.response;
 
 import com.videoplayback.videoStream.Entity.Video;
 import com.videoplayback.videoStream.Entity.VideoStatus;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
+// also the projection of the catalog queries in VideoRepo, keep the constructor in field order
 @Data
 @Builder
+@AllArgsConstructor
 public class VideoResponse {
     private String videoId;
     private String title;
@@ -0,0 +1,389 @@
+package com.videoplayback.videoStream.search;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.response.VideoResponse;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over video titles and descriptions. Every query word has to match,
+ * exactly, as the prefix of a longer word or with one typo (an insertion, deletion, substitution
+ * or swap of two neighbouring characters). Results are ranked by tf-idf, title words counting
+ * more than description words and exact matches more than prefix and typo matches.
+ * <p>
+ * Documents are numbered in insertion order so posting lists stay sorted by appending; removed
+ * or changed documents are only marked deleted until enough of them pile up to rebuild.
+ */
+public class InvertedIndex {
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float TYPO_FACTOR = 0.4f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+    // a short prefix like "th" would otherwise pull in a large part of the vocabulary
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    public record Hit(VideoResponse video, float score) {
+    }
+
+    public record Result(List<Hit> hits, int total) {
+    }
+
+    private record Variant(Postings postings, float factor) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // every term with one character removed, to find the terms one typo away from a query word
+    private final Map<String, List<String>> deletions = new HashMap<>();
+    private final List<VideoResponse> docs = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    // accumulators are as long as the index, so only one per core is kept between searches
+    private final BlockingQueue<Scratch> scratchPool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds the video or replaces what is indexed for it. A change of status or thumbnail alone
+     * does not touch the postings.
+     */
+    public void put(VideoResponse video) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = docIds.get(video.getVideoId());
+            if (existing != null) {
+                VideoResponse indexed = docs.get(existing);
+                if (Objects.equals(indexed.getTitle(), video.getTitle())
+                        && Objects.equals(indexed.getDescription(), video.getDescription())) {
+                    docs.set(existing, video);
+                    return;
+                }
+                markDeleted(existing);
+            }
+            add(video);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String videoId) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.remove(videoId);
+            if (docId != null) {
+                markDeleted(docId);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked matches of {@code query}, optionally only videos in {@code status}, skipping the
+     * first {@code offset}. {@link Result#total()} counts every match.
+     */
+    public Result search(String query, VideoStatus status, int offset, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty() || limit <= 0) {
+            return new Result(List.of(), 0);
+        }
+        Scratch pooled = scratchPool.poll();
+        Scratch s = pooled != null ? pooled : new Scratch();
+        lock.readLock().lock();
+        try {
+            s.ensureCapacity(docs.size());
+            try {
+                for (int i = 0; i < words.size(); i++) {
+                    for (Variant variant : variants(words.get(i))) {
+                        accumulate(s, variant, i);
+                    }
+                }
+                return collect(s, words.size(), status, offset, limit);
+            } finally {
+                s.reset();
+            }
+        } finally {
+            lock.readLock().unlock();
+            // dropped when the pool is full, a burst of searches leaves nothing behind
+            scratchPool.offer(s);
+        }
+    }
+
+    private List<Variant> variants(String word) {
+        List<Variant> variants = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        seen.add(word);
+        Postings exact = terms.get(word);
+        if (exact != null) {
+            variants.add(new Variant(exact, 1f));
+        }
+        if (word.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Postings> entry : terms.subMap(word, false, word + Character.MAX_VALUE, false).entrySet()) {
+                if (seen.size() > MAX_EXPANSIONS) {
+                    break;
+                }
+                seen.add(entry.getKey());
+                variants.add(new Variant(entry.getValue(), PREFIX_FACTOR));
+            }
+        }
+        if (word.length() >= MIN_TYPO_LENGTH) {
+            Set<String> candidates = new LinkedHashSet<>(deletions.getOrDefault(word, List.of()));
+            for (String deletion : deletionsOf(word)) {
+                if (terms.containsKey(deletion)) {
+                    candidates.add(deletion);
+                }
+                candidates.addAll(deletions.getOrDefault(deletion, List.of()));
+            }
+            for (String candidate : candidates) {
+                if (seen.size() > 2 * MAX_EXPANSIONS) {
+                    break;
+                }
+                if (seen.add(candidate) && withinOneEdit(word, candidate)) {
+                    variants.add(new Variant(terms.get(candidate), TYPO_FACTOR));
+                }
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Adds the variant's score to every document that matched all earlier words. A document
+     * matching a word through several variants keeps the best one.
+     */
+    private void accumulate(Scratch s, Variant variant, int word) {
+        Postings postings = variant.postings();
+        float idf = (float) Math.log(1 + (double) docIds.size() / postings.size);
+        for (int p = 0; p < postings.size; p++) {
+            int doc = postings.docs[p];
+            int matched = s.matched[doc];
+            if (matched < word || deleted.get(doc)) {
+                continue;
+            }
+            float score = variant.factor() * idf * (float) Math.log1p(postings.weights[p]);
+            if (matched == word) {
+                if (word == 0) {
+                    s.touch(doc);
+                }
+                s.matched[doc] = word + 1;
+                s.best[doc] = score;
+                s.score[doc] += score;
+            } else if (score > s.best[doc]) {
+                s.score[doc] += score - s.best[doc];
+                s.best[doc] = score;
+            }
+        }
+    }
+
+    private Result collect(Scratch s, int words, VideoStatus status, int offset, int limit) {
+        int wanted = Math.max(0, offset) + limit;
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score)
+                .thenComparing(hit -> hit.video().getVideoId(), Comparator.reverseOrder());
+        // the worst of the best hits so far on top
+        PriorityQueue<Hit> best = new PriorityQueue<>(ranking);
+        int total = 0;
+        for (int t = 0; t < s.touched; t++) {
+            int doc = s.docs[t];
+            if (s.matched[doc] != words) {
+                continue;
+            }
+            VideoResponse video = docs.get(doc);
+            if (status != null && video.getStatus() != status) {
+                continue;
+            }
+            total++;
+            Hit hit = new Hit(video, s.score[doc]);
+            if (best.size() < wanted) {
+                best.add(hit);
+            } else if (ranking.compare(hit, best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking.reversed());
+        return new Result(offset < hits.size() ? hits.subList(Math.max(0, offset), hits.size()) : List.of(), total);
+    }
+
+    private void add(VideoResponse video) {
+        int docId = docs.size();
+        docs.add(video);
+        docIds.put(video.getVideoId(), docId);
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(video.getTitle())) {
+            weights.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(video.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        weights.forEach((term, weight) -> terms.computeIfAbsent(term, this::newTerm).add(docId, weight));
+    }
+
+    private Postings newTerm(String term) {
+        if (term.length() >= MIN_TYPO_LENGTH) {
+            for (String deletion : deletionsOf(term)) {
+                deletions.computeIfAbsent(deletion, key -> new ArrayList<>(1)).add(term);
+            }
+        }
+        return new Postings();
+    }
+
+    private void markDeleted(int docId) {
+        deleted.set(docId);
+        docs.set(docId, null);
+    }
+
+    private void compactIfNeeded() {
+        int deletedCount = docs.size() - docIds.size();
+        if (deletedCount < MIN_DELETED_TO_COMPACT || deletedCount < docs.size() / 4) {
+            return;
+        }
+        List<VideoResponse> live = docs.stream().filter(Objects::nonNull).toList();
+        terms.clear();
+        deletions.clear();
+        docs.clear();
+        docIds.clear();
+        deleted.clear();
+        live.forEach(this::add);
+    }
+
+    private static Set<String> deletionsOf(String word) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < word.length(); i++) {
+            result.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance of at most one: one insertion, deletion, substitution or
+     * transposition of neighbouring characters.
+     */
+    static boolean withinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        if (a.length() == b.length()) {
+            int first = -1;
+            for (int i = 0; i < a.length(); i++) {
+                if (a.charAt(i) == b.charAt(i)) {
+                    continue;
+                }
+                if (first >= 0) {
+                    // a second difference is only fine as the other half of a swap
+                    return first == i - 1 && a.charAt(first) == b.charAt(i) && a.charAt(i) == b.charAt(first)
+                            && a.substring(i + 1).equals(b.substring(i + 1));
+                }
+                first = i;
+            }
+            return true;
+        }
+        String shorter = a.length() < b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        int i = 0;
+        while (i < shorter.length() && shorter.charAt(i) == longer.charAt(i)) {
+            i++;
+        }
+        return shorter.substring(i).equals(longer.substring(i + 1));
+    }
+
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+    }
+
+    /**
+     * Score accumulators indexed by document number, pooled across queries so a query costs
+     * work proportional to the postings it reads rather than to the index size.
+     */
+    private static class Scratch {
+        private float[] score = new float[0];
+        private float[] best = new float[0];
+        private int[] matched = new int[0];
+        private int[] docs = new int[16];
+        private int touched;
+
+        void ensureCapacity(int size) {
+            if (matched.length < size) {
+                int capacity = Math.max(size, matched.length * 2);
+                score = new float[capacity];
+                best = new float[capacity];
+                matched = new int[capacity];
+            }
+        }
+
+        void touch(int doc) {
+            if (touched == docs.length) {
+                docs = Arrays.copyOf(docs, touched * 2);
+            }
+            docs[touched++] = doc;
+        }
+
+        void reset() {
+            for (int t = 0; t < touched; t++) {
+                int doc = docs[t];
+                score[doc] = 0;
+                best[doc] = 0;
+                matched[doc] = 0;
+            }
+            touched = 0;
+        }
+    }
+}
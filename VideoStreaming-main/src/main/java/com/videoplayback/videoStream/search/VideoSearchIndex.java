@@ -0,0 +1,62 @@
+package com.videoplayback.videoStream.search;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.Reposetory.VideoRepo;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import com.videoplayback.videoStream.response.VideoResponse;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps the {@link InvertedIndex} in line with the video table: built from it at startup, then
+ * updated from the events every save, status change and delete publishes.
+ */
+@Component
+public class VideoSearchIndex {
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(VideoSearchIndex.class);
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Autowired
+    private VideoRepo videoRepo;
+
+    @PostConstruct
+    public void build() {
+        long started = System.nanoTime();
+        String after = "";
+        while (true) {
+            List<VideoResponse> batch = videoRepo.findPageAfter(after, Limit.of(BUILD_BATCH_SIZE));
+            batch.forEach(index::put);
+            if (batch.size() < BUILD_BATCH_SIZE) {
+                break;
+            }
+            after = batch.get(batch.size() - 1).getVideoId();
+        }
+        logger.info("Search index built over {} videos in {} ms", index.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @EventListener
+    public void onStatusChanged(VideoStatusChangedEvent event) {
+        videoRepo.findById(event.videoId())
+                .map(VideoResponse::fromEntity)
+                .ifPresentOrElse(index::put, () -> index.remove(event.videoId()));
+    }
+
+    @EventListener
+    public void onDeleted(VideoDeletedEvent event) {
+        index.remove(event.videoId());
+    }
+
+    public InvertedIndex.Result search(String query, VideoStatus status, int offset, int limit) {
+        return index.search(query, status, offset, limit);
+    }
+}
@@ -0,0 +1,280 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.videoplayback.videoStream.exception.FileHandlesExhaustedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only {@link FileChannel}s shared by every request reading the same file, so popular
+ * sources and segments are opened once rather than once per request. Readers only use
+ * positional reads ({@code transferTo(position, ...)}, {@code read(buffer, position)}), which
+ * may run concurrently on one channel.
+ * <p>
+ * A channel is keyed by path, size and modification time: a file replaced under the same name
+ * gets a channel of its own and the old one idles out. At most max-open channels are pooled,
+ * least recently used idle ones make room; when all of them are in use a request gets a
+ * channel of its own that is closed after it. Channels outside the pool, including one just
+ * opened and not pooled yet, are bounded by max-overflow: a request waits up to
+ * overflow-wait-ms for one and is then turned away with a 503, so descriptors stay bounded
+ * under any load.
+ */
+@Component
+public class FileChannelPool {
+    private final Logger logger = LoggerFactory.getLogger(FileChannelPool.class);
+
+    record Key(Path path, long size, long lastModified) {
+    }
+
+    private static final class Entry {
+        private final FileChannel channel;
+        private int references;
+        private long idleSince;
+
+        Entry(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A channel borrowed from the pool, give it back by closing the handle.
+     */
+    public final class Handle implements AutoCloseable {
+        private final Entry entry;
+        private final FileChannel channel;
+        private boolean closed;
+
+        private Handle(Entry entry, FileChannel channel) {
+            this.entry = entry;
+            this.channel = channel;
+        }
+
+        public FileChannel channel() {
+            return channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (entry == null) {
+                unpooled.decrementAndGet();
+                try {
+                    channel.close();
+                } finally {
+                    overflow.release();
+                }
+            } else {
+                release(entry);
+            }
+        }
+    }
+
+    @Value("${streaming.file-handles.max-open}")
+    int maxOpen;
+
+    @Value("${streaming.file-handles.idle-timeout-ms}")
+    long idleTimeoutMs;
+
+    @Value("${streaming.file-handles.max-overflow}")
+    int maxOverflow;
+
+    @Value("${streaming.file-handles.overflow-wait-ms}")
+    long overflowWaitMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // access order, so iteration starts at the least recently used channel
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int inUse;
+    private final AtomicInteger unpooled = new AtomicInteger();
+    private Semaphore overflow;
+    private Counter hits;
+    private Counter misses;
+    private Counter overflows;
+    private Counter evictions;
+    private Counter rejections;
+
+    @PostConstruct
+    public void init() {
+        overflow = new Semaphore(maxOverflow);
+        Gauge.builder("streaming.file.handles.open", this, FileChannelPool::openCount)
+                .description("File descriptors held for streaming, pooled and per-request")
+                .register(meterRegistry);
+        Gauge.builder("streaming.file.handles.in_use", this, FileChannelPool::inUseCount)
+                .description("Pooled channels currently borrowed by requests")
+                .register(meterRegistry);
+        hits = acquireCounter("hit");
+        misses = acquireCounter("miss");
+        overflows = acquireCounter("overflow");
+        rejections = acquireCounter("rejected");
+        evictions = Counter.builder("streaming.file.handles.evicted").register(meterRegistry);
+    }
+
+    private Counter acquireCounter(String result) {
+        return Counter.builder("streaming.file.handles.acquire").tag("result", result).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<FileChannel> channels;
+        synchronized (this) {
+            channels = entries.values().stream().map(entry -> entry.channel).toList();
+            entries.clear();
+        }
+        closeAll(channels);
+    }
+
+    public Handle acquire(Path path, FileMetadata metadata) throws IOException {
+        Key key = new Key(path.toAbsolutePath().normalize(), metadata.size(), metadata.lastModified());
+        synchronized (this) {
+            Handle handle = borrow(key);
+            if (handle != null) {
+                return handle;
+            }
+        }
+
+        // a channel counts against max-overflow from its open until the pool takes it
+        acquireOverflow();
+        boolean pooled = true;
+        List<FileChannel> toClose = new ArrayList<>();
+        try {
+            // opened outside the lock, a slow open must not hold up requests for other files
+            FileChannel channel = FileChannel.open(key.path(), StandardOpenOption.READ);
+            synchronized (this) {
+                Handle handle = borrow(key);
+                if (handle != null) {
+                    // another request opened it meanwhile
+                    toClose.add(channel);
+                    return handle;
+                }
+                if (entries.size() >= maxOpen && !evictIdle(toClose)) {
+                    overflows.increment();
+                    unpooled.incrementAndGet();
+                    pooled = false;
+                    return new Handle(null, channel);
+                }
+                Entry entry = new Entry(channel);
+                entry.references = 1;
+                inUse++;
+                entries.put(key, entry);
+                misses.increment();
+                return new Handle(entry, channel);
+            }
+        } finally {
+            closeAll(toClose);
+            if (pooled) {
+                overflow.release();
+            }
+        }
+    }
+
+    private void acquireOverflow() throws IOException {
+        try {
+            if (!overflow.tryAcquire(overflowWaitMs, TimeUnit.MILLISECONDS)) {
+                rejections.increment();
+                throw new FileHandlesExhaustedException(maxOpen + maxOverflow);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a file handle");
+        }
+    }
+
+    private Handle borrow(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.channel.isOpen()) {
+            // an interrupted reader closes the channel for everyone sharing it; whoever still
+            // holds it gives it back as usual
+            entries.remove(key);
+            return null;
+        }
+        entry.references++;
+        inUse++;
+        hits.increment();
+        return new Handle(entry, entry.channel);
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.references--;
+        inUse--;
+        entry.idleSince = System.nanoTime();
+    }
+
+    private boolean evictIdle(List<FileChannel> toClose) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                iterator.remove();
+                toClose.add(entry.channel);
+                evictions.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${streaming.file-handles.sweep-interval-ms}")
+    public void closeIdle() {
+        long cutoff = System.nanoTime() - idleTimeoutMs * 1_000_000;
+        List<FileChannel> toClose = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.references == 0 && entry.idleSince - cutoff < 0) {
+                    iterator.remove();
+                    toClose.add(entry.channel);
+                    evictions.increment();
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    synchronized int openCount() {
+        return entries.size() + unpooled.get();
+    }
+
+    synchronized int inUseCount() {
+        return inUse;
+    }
+
+    private void closeAll(List<FileChannel> channels) {
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close pooled file channel: {}", e.getMessage());
+            }
+        }
+    }
+}
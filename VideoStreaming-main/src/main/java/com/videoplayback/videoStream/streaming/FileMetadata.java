@@ -0,0 +1,23 @@
+package com.videoplayback.videoStream.streaming;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * What the streaming endpoints need to know about a file before serving it.
+ */
+public record FileMetadata(boolean exists, long size, long lastModified) {
+    public static final FileMetadata MISSING = new FileMetadata(false, -1, 0);
+
+    public static FileMetadata read(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileMetadata(true, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        }
+    }
+}
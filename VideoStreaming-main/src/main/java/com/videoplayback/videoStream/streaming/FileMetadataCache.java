@@ -0,0 +1,168 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Existence, size and modification time of the files under files.video, files.video.hsl and
+ * files.thumbnail, so serving a file doesn't start with a round of stat calls. A {@link WatchService}
+ * on the three top-level directories drops entries as sources and thumbnails change and as output
+ * directories come and go. The directories below files.video.hsl are not watched, one inotify watch
+ * per output would run into fs.inotify.max_user_watches as the catalog grows; the pipeline
+ * invalidates what it writes there itself, anything else is bounded by the TTL. Only ask for files
+ * that no longer change once they exist (sources, output of completed videos, thumbnails), a file
+ * still being written is read live.
+ */
+@Component
+public class FileMetadataCache {
+    private final Logger logger = LoggerFactory.getLogger(FileMetadataCache.class);
+
+    @Value("${files.video}")
+    String DIR;
+
+    @Value("${files.video.hsl}")
+    String HSL_DIR;
+
+    @Value("${files.thumbnail}")
+    String THUMBNAIL_DIR;
+
+    @Value("${cache.files.max-entries}")
+    private long maxEntries;
+
+    // only bounds staleness should a watch event ever get lost
+    @Value("${cache.files.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Path, FileMetadata> cache;
+    private WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "files.metadata");
+
+        watchService = FileSystems.getDefault().newWatchService();
+        for (String root : new String[]{DIR, HSL_DIR, THUMBNAIL_DIR}) {
+            Path dir = Paths.get(root).toAbsolutePath().normalize();
+            Files.createDirectories(dir);
+            watchDirectory(dir);
+        }
+        Thread.ofPlatform().daemon().name("file-metadata-watch").start(this::watch);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        watchService.close();
+    }
+
+    public FileMetadata get(Path path) throws IOException {
+        try {
+            return cache.get(key(path), key -> {
+                try {
+                    return FileMetadata.read(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void invalidate(Path path) {
+        cache.invalidate(key(path));
+    }
+
+    // output and thumbnails written for one asset, see Video#outputKey and ThumbnailGenerator
+    public void invalidateOutputs(String outputKey) {
+        invalidateTree(Paths.get(HSL_DIR, outputKey));
+        Path thumbnails = key(Paths.get(THUMBNAIL_DIR));
+        String prefix = outputKey + "_";
+        cache.asMap().keySet().removeIf(key -> thumbnails.equals(key.getParent())
+                && key.getFileName().toString().startsWith(prefix));
+    }
+
+    // the path and everything below it
+    public void invalidateTree(Path path) {
+        Path prefix = key(path);
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private void watchDirectory(Path dir) {
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+        } catch (IOException e) {
+            // e.g. out of inotify watches, entries then only age out
+            logger.warn("Could not watch {}, cached metadata there may be stale for {}s: {}",
+                    dir, ttlSeconds, e.getMessage());
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        cache.invalidateAll();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    // an output directory that comes or goes takes everything cached below it along
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE
+                            || event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        invalidateTree(changed);
+                    } else {
+                        cache.invalidate(changed);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // shutting down
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.videoplayback.videoStream.controller.AppConstants;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Writes a region of a file to the response without staging it on the heap.
+ * When the connector supports sendfile the kernel copies the bytes straight to the socket,
+ * otherwise the region is pushed through {@link FileChannel#transferTo} in bounded slices from a
+ * {@link FileChannelPool} channel. With sendfile the connector opens the file itself.
+ */
+@Component
+public class FileRegionWriter {
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private FileChannelPool fileChannelPool;
+
+    /**
+     * Sends {@code count} bytes of {@code path} starting at {@code position}.
+     * Status and headers must already be set; Content-Length is set here.
+     */
+    public void write(Path path, FileMetadata metadata, long position, long count,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(count);
+        if (count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+
+        try (FileChannelPool.Handle source = fileChannelPool.acquire(path, metadata)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            transfer(source.channel(), position, count, target);
+        }
+    }
+
+    /**
+     * Moves {@code count} bytes from {@code source} to {@code target}. transferTo may move fewer
+     * bytes than asked for, so this loops in chunks until the region is done. A file that ends
+     * before the region does (truncated or replaced mid-request) throws {@link EOFException}: the
+     * Content-Length has been sent already, so the connection must be aborted rather than the
+     * response ended short as if complete.
+     */
+    public static long transfer(FileChannel source, long position, long count,
+                                WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long slice = Math.min(AppConstants.CHUNK_SIZE, count - transferred);
+            long n = source.transferTo(position + transferred, slice, target);
+            if (n <= 0) {
+                throw new EOFException("File ended after " + transferred + " of " + count + " bytes at position " + position);
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+}
@@ -0,0 +1,51 @@
+package com.videoplayback.videoStream.streaming;
+
+/**
+ * Just enough reading of HLS media playlists to answer blocking reloads and to mark playlists
+ * that are still growing.
+ */
+public final class HlsPlaylist {
+    private static final String MEDIA_SEQUENCE = "#EXT-X-MEDIA-SEQUENCE:";
+
+    private HlsPlaylist() {
+    }
+
+    public static boolean isMediaPlaylist(String playlist) {
+        return playlist.contains("#EXT-X-TARGETDURATION:");
+    }
+
+    public static boolean ended(String playlist) {
+        return playlist.contains("#EXT-X-ENDLIST");
+    }
+
+    /**
+     * Media sequence number of the last segment in the playlist, -1 while it has none.
+     */
+    public static long lastMediaSequence(String playlist) {
+        long first = 0;
+        long segments = 0;
+        for (String line : playlist.split("\\r?\\n")) {
+            if (line.startsWith(MEDIA_SEQUENCE)) {
+                first = Long.parseLong(line.substring(MEDIA_SEQUENCE.length()).trim());
+            } else if (line.startsWith("#EXTINF:")) {
+                segments++;
+            }
+        }
+        return first + segments - 1;
+    }
+
+    /**
+     * Adds the tags for a playlist that is still being written: playback starts at the beginning
+     * rather than at the live edge, and clients may block on the next segment with _HLS_msn.
+     */
+    public static String withLiveTags(String playlist) {
+        int firstLineEnd = playlist.indexOf('\n');
+        if (firstLineEnd < 0 || !isMediaPlaylist(playlist)) {
+            return playlist;
+        }
+        return playlist.substring(0, firstLineEnd + 1)
+                + "#EXT-X-START:TIME-OFFSET=0,PRECISE=YES\n"
+                + "#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES\n"
+                + playlist.substring(firstLineEnd + 1);
+    }
+}
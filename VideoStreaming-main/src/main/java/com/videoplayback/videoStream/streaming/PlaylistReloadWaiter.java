@@ -0,0 +1,126 @@
+package com.videoplayback.videoStream.streaming;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds playlist requests of videos that are still processing until there is something new to
+ * answer with: the playlist appearing at all, or with {@code _HLS_msn} the requested segment
+ * being listed. Requests wait without holding a servlet thread and get whatever is there once
+ * the timeout passes.
+ * <p>
+ * Polling reads playlists from disk, so it runs on a thread of its own rather than on the shared
+ * scheduler that also renews transcode leases, and the responses are built on a small pool so
+ * a slow one does not hold up the next poll.
+ */
+@Component
+public class PlaylistReloadWaiter {
+    private final Logger logger = LoggerFactory.getLogger(PlaylistReloadWaiter.class);
+
+    @Value("${hls.blocking-reload.timeout-ms}")
+    private long TIMEOUT_MS;
+
+    @Value("${hls.blocking-reload.poll-interval-ms}")
+    private long POLL_INTERVAL_MS;
+
+    @Value("${hls.blocking-reload.threads}")
+    private int THREADS;
+
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService poller;
+    private ExecutorService responders;
+
+    private record Waiter(Path playlist, long mediaSequence, Runnable respond) {
+    }
+
+    @PostConstruct
+    public void init() {
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "playlist-reload-poll"));
+        AtomicInteger threadCount = new AtomicInteger();
+        responders = Executors.newFixedThreadPool(THREADS,
+                runnable -> new Thread(runnable, "playlist-reload-" + threadCount.incrementAndGet()));
+        poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        responders.shutdownNow();
+    }
+
+    /**
+     * Completes with {@code respond} once {@code playlist} exists and, for a non-negative
+     * {@code mediaSequence}, lists that segment or has ended.
+     */
+    public <T> DeferredResult<T> await(Path playlist, long mediaSequence, Callable<T> respond) {
+        DeferredResult<T> result = new DeferredResult<>(TIMEOUT_MS);
+        Waiter waiter = new Waiter(playlist, mediaSequence, () -> complete(result, respond));
+        result.onTimeout(waiter.respond());
+        result.onCompletion(() -> waiters.remove(waiter));
+
+        if (ready(waiter)) {
+            waiter.respond().run();
+        } else {
+            waiters.add(waiter);
+        }
+        return result;
+    }
+
+    void poll() {
+        for (Waiter waiter : waiters) {
+            try {
+                if (ready(waiter) && waiters.remove(waiter)) {
+                    responders.execute(waiter.respond());
+                }
+            } catch (RejectedExecutionException e) {
+                // shutting down, the request times out
+                return;
+            } catch (RuntimeException e) {
+                // a failed poll would cancel every later one
+                logger.warn("Could not check playlist {}: {}", waiter.playlist(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean ready(Waiter waiter) {
+        if (!Files.exists(waiter.playlist())) {
+            return false;
+        }
+        if (waiter.mediaSequence() < 0) {
+            return true;
+        }
+        try {
+            String playlist = Files.readString(waiter.playlist());
+            return HlsPlaylist.ended(playlist) || HlsPlaylist.lastMediaSequence(playlist) >= waiter.mediaSequence();
+        } catch (IOException e) {
+            logger.debug("Could not read playlist {}: {}", waiter.playlist(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static <T> void complete(DeferredResult<T> result, Callable<T> respond) {
+        try {
+            result.setResult(respond.call());
+        } catch (Exception e) {
+            result.setErrorResult(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.videoplayback.videoStream.streaming;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A file served through a {@link FileChannelPool} channel. Each stream reads from its own
+ * position and hands the channel back when closed, which Spring does once the body is written.
+ */
+public class PooledFileResource extends AbstractResource {
+    private final FileChannelPool pool;
+    private final Path path;
+    private final FileMetadata metadata;
+
+    public PooledFileResource(FileChannelPool pool, Path path, FileMetadata metadata) {
+        this.pool = pool;
+        this.path = path;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ChannelInputStream(pool.acquire(path, metadata), metadata.size());
+    }
+
+    @Override
+    public long contentLength() {
+        return metadata.size();
+    }
+
+    @Override
+    public long lastModified() {
+        return metadata.lastModified();
+    }
+
+    @Override
+    public boolean exists() {
+        return metadata.exists();
+    }
+
+    @Override
+    public String getFilename() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Pooled file [" + path + "]";
+    }
+
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannelPool.Handle handle;
+        private final long length;
+        private long position;
+
+        ChannelInputStream(FileChannelPool.Handle handle, long length) {
+            this.handle = handle;
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            // only up to the length the response announced, even if the file grew since
+            int wanted = (int) Math.min(len, length - position);
+            if (wanted <= 0) {
+                return -1;
+            }
+            int n = handle.channel().read(ByteBuffer.wrap(b, off, wanted), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            handle.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.videoplayback.videoStream.streaming;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves a file following RFC 7233: single, suffix and multiple byte ranges, 416 for
+ * unsatisfiable ranges, and conditional requests through ETag / Last-Modified, If-None-Match
+ * and If-Range. Bytes are always moved by {@link FileRegionWriter}, never buffered.
+ */
+@Component
+public class RangeRequestHandler {
+    private static final int MAX_RANGES = 64;
+
+    @Autowired
+    private FileRegionWriter fileRegionWriter;
+    @Autowired
+    private FileChannelPool fileChannelPool;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary rangeSizes;
+
+    @PostConstruct
+    public void init() {
+        rangeSizes = DistributionSummary.builder("streaming.range.size")
+                .description("Bytes asked for by each range of a partial request")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void serve(Path path, String contentType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(path, contentType, CacheControl.noCache(), request, response);
+    }
+
+    public void serve(Path path, String contentType, CacheControl cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        serve(path, new FileMetadata(true, attributes.size(), attributes.lastModifiedTime().toMillis()),
+                contentType, cacheControl, request, response);
+    }
+
+    // for callers that already know the file's size and modification time, see FileMetadataCache
+    public void serve(Path path, FileMetadata metadata, String contentType, CacheControl cacheControl,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = metadata.size();
+        long lastModified = metadata.lastModified();
+        String etag = etag(length, lastModified);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        List<ByteRange> ranges = rangeHeader != null && ifRangeMatches(request, etag, lastModified)
+                ? ByteRange.parse(rangeHeader, length)
+                : null;
+
+        if (ranges == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            writeRegion(path, metadata, 0, length, head, request, response);
+            return;
+        }
+
+        if (ranges.isEmpty() || ranges.size() > MAX_RANGES) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLength(0);
+            return;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        for (ByteRange range : ranges) {
+            rangeSizes.record(range.length());
+        }
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+            writeRegion(path, metadata, range.start(), range.length(), head, request, response);
+            return;
+        }
+
+        writeMultipart(path, metadata, contentType, length, ranges, head, response);
+    }
+
+    public static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * If-Range only lets the Range header through when the validator still matches; a weak
+     * ETag never matches, and a date has to be exact to the second.
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeRegion(Path path, FileMetadata metadata, long position, long count, boolean head,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (head) {
+            response.setContentLengthLong(count);
+            return;
+        }
+        fileRegionWriter.write(path, metadata, position, count, request, response);
+    }
+
+    private void writeMultipart(Path path, FileMetadata metadata, String contentType, long length, List<ByteRange> ranges,
+                                boolean head, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannelPool.Handle source = fileChannelPool.acquire(path, metadata)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                ByteRange range = ranges.get(i);
+                out.write(partHeaders[i]);
+                FileRegionWriter.transfer(source.channel(), range.start(), range.length(), target);
+            }
+        }
+        out.write(closing);
+    }
+}
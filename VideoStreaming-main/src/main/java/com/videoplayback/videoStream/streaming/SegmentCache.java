@@ -0,0 +1,109 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps finished HLS segments and playlists in direct (off-heap) buffers, bounded by a total
+ * byte budget. Caffeine's W-TinyLFU policy decides what to evict, so the handful of segments
+ * every viewer starts with stay resident while one-off seeks don't flush them out.
+ */
+@Component
+public class SegmentCache {
+
+    // videos with the same source share one output, see Video#outputKey
+    public record Key(String outputKey, String name) {
+    }
+
+    public record Entry(ByteBuffer data, long lastModified) {
+        public ByteBufferResource asResource() {
+            return new ByteBufferResource(data, "cached segment");
+        }
+    }
+
+    @Value("${cache.segments.max-bytes}")
+    private long maxBytes;
+
+    @Value("${cache.segments.max-entry-bytes}")
+    private long maxEntryBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Key, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, Entry entry) -> entry.data().capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "hls.segments");
+    }
+
+    public Entry get(String outputKey, String name) {
+        return cache.getIfPresent(new Key(outputKey, name));
+    }
+
+    /**
+     * Reads {@code path} into a direct buffer and caches it. Concurrent misses for the same file
+     * wait for one read instead of each filling a buffer of their own. Files bigger than the
+     * per-entry limit are not admitted and {@code null} is returned so the caller streams them
+     * from disk.
+     */
+    public Entry load(String outputKey, String name, Path path) throws IOException {
+        try {
+            return cache.get(new Key(outputKey, name), key -> {
+                try {
+                    return read(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Entry read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes) {
+                return null;
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data, data.position()) < 0) {
+                    throw new EOFException("Segment truncated while caching: " + path);
+                }
+            }
+            data.flip();
+            return new Entry(data.asReadOnlyBuffer(), path.toFile().lastModified());
+        }
+    }
+
+    // everything cached of one output, which all videos sharing it lose
+    public void invalidate(String outputKey) {
+        cache.asMap().keySet().removeIf(key -> key.outputKey().equals(outputKey));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,98 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Thumbnails resized to a width none of the pre-generated WebP copies covers, kept as encoded
+ * JPEG bytes and bounded by a total byte budget. Widths are rounded up to a step so clients
+ * asking for every pixel width in between share entries, and the key carries the mtime of the
+ * source so a regenerated thumbnail is never answered from a stale resize.
+ */
+@Component
+public class ThumbnailResizeCache {
+
+    public record Key(Path source, long lastModified, int width) {
+    }
+
+    @Value("${cache.thumbnails.max-bytes}")
+    private long maxBytes;
+
+    @Value("${cache.thumbnails.width-step}")
+    private int widthStep;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Key, byte[]> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, byte[] image) -> image.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "thumbnails.resized");
+    }
+
+    // the width actually served for a request of width, never wider than the source
+    public int width(int requested, int sourceWidth) {
+        long rounded = (Math.max(1L, requested) + widthStep - 1) / widthStep * widthStep;
+        return (int) Math.min(rounded, sourceWidth);
+    }
+
+    /**
+     * The JPEG at {@code source} scaled to about {@code width} pixels wide, resized on a miss.
+     * Concurrent misses for the same key share one resize.
+     */
+    public byte[] get(Path source, FileMetadata metadata, int width) throws IOException {
+        try {
+            return cache.get(new Key(source, metadata.lastModified(), width(width, Integer.MAX_VALUE)), this::resize);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private byte[] resize(Key key) {
+        try {
+            BufferedImage original = ImageIO.read(key.source().toFile());
+            if (original == null) {
+                throw new IOException("Not a readable image: " + key.source());
+            }
+            int width = width(key.width(), original.getWidth());
+            int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, null);
+            graphics.dispose();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(scaled, "jpg", output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
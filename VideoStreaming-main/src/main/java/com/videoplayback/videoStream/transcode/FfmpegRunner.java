@@ -0,0 +1,294 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.exception.TranscodeStalledException;
+import com.videoplayback.videoStream.exception.VideoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs ffmpeg / ffprobe with an argument list, so file names never go through a shell.
+ * What the tools print on stderr goes to the log at debug level instead of the console; the
+ * last lines are kept for the error when the process fails, and ffmpeg's closing progress line
+ * is parsed into {@link Stats}.
+ * <p>
+ * {@link #run(List, String, Consumer, Duration)} additionally has ffmpeg write machine-readable
+ * progress ({@code -progress pipe:1}) and kills it once its output time stops advancing.
+ */
+@Component
+public class FfmpegRunner {
+    private static final int KEPT_LINES = 10;
+    private static final Pattern FRAMES = Pattern.compile("frame=\\s*(\\d+)");
+    private static final Pattern FPS = Pattern.compile("fps=\\s*([\\d.]+)");
+    private static final Pattern SPEED = Pattern.compile("speed=\\s*([\\d.]+)x");
+    private static final long WATCHDOG_INTERVAL_MS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(FfmpegRunner.class);
+
+    /**
+     * Frames written, average frames per second and speed relative to realtime of one run,
+     * as ffmpeg reports them when it finishes.
+     */
+    public record Stats(long frames, double fps, double speed) {
+    }
+
+    /**
+     * One {@code -progress} report: output time reached, frames, current fps and speed relative
+     * to realtime (0 while ffmpeg reports N/A), and whether it is the last one.
+     */
+    public record Progress(double outTimeSeconds, long frames, double fps, double speed, boolean end) {
+    }
+
+    /**
+     * Runs the command and returns ffmpeg's final statistics, or {@code null} when it printed none.
+     */
+    public Stats run(List<String> command, String description) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process process = processBuilder.start();
+        process.getOutputStream().close();
+        StderrReader stderr = new StderrReader(process.getErrorStream(), description);
+        await(process, stderr, command.get(0), description);
+        return stderr.stats();
+    }
+
+    /**
+     * Runs an ffmpeg command with progress reporting; every report goes to {@code listener} on a
+     * reader thread. When the output time has not advanced for {@code stallTimeout} the process
+     * is killed and {@link TranscodeStalledException} thrown.
+     */
+    public Stats run(List<String> command, String description, Consumer<Progress> listener,
+                     Duration stallTimeout) throws IOException, InterruptedException {
+        List<String> withProgress = new ArrayList<>(command);
+        withProgress.addAll(1, List.of("-progress", "pipe:1"));
+        Process process = new ProcessBuilder(withProgress).start();
+        process.getOutputStream().close();
+        StderrReader stderr = new StderrReader(process.getErrorStream(), description);
+        ProgressReader progress = new ProgressReader(process.getInputStream(), listener);
+
+        long stallNanos = stallTimeout.toNanos();
+        try {
+            while (!process.waitFor(WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (System.nanoTime() - progress.lastAdvance > stallNanos) {
+                    process.destroyForcibly();
+                    process.waitFor();
+                    throw new TranscodeStalledException(description, stallTimeout);
+                }
+            }
+            progress.thread.join();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        await(process, stderr, command.get(0), description);
+        Progress last = progress.last;
+        return last != null ? new Stats(last.frames(), last.fps(), last.speed()) : stderr.stats();
+    }
+
+    /**
+     * Runs the command and returns what it printed on stdout; stderr goes to the log.
+     */
+    public String capture(List<String> command, String description) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        Process process = processBuilder.start();
+        process.getOutputStream().close();
+        StderrReader stderr = new StderrReader(process.getErrorStream(), description);
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        await(process, stderr, command.get(0), description);
+        return output;
+    }
+
+    private void await(Process process, StderrReader stderr, String program, String description) throws InterruptedException {
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+            stderr.thread.join();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        if (exitCode != 0) {
+            throw new VideoException(description + " failed, " + program + " exited with code " + exitCode
+                    + stderr.lastLines());
+        }
+    }
+
+    /**
+     * Reads a closing progress line such as
+     * {@code frame= 1500 fps=240 q=-1.0 Lsize=N/A time=00:01:00.00 bitrate=N/A speed=9.6x}.
+     */
+    static Stats parseStats(String line) {
+        Matcher frames = FRAMES.matcher(line);
+        Matcher fps = FPS.matcher(line);
+        Matcher speed = SPEED.matcher(line);
+        if (!frames.find() || !fps.find()) {
+            return null;
+        }
+        return new Stats(Long.parseLong(frames.group(1)), Double.parseDouble(fps.group(1)),
+                speed.find() ? Double.parseDouble(speed.group(1)) : 0);
+    }
+
+    /**
+     * Folds the key=value lines of one {@code -progress} block into a report; a block ends with
+     * {@code progress=continue} or {@code progress=end}. Returns {@code null} for other keys.
+     */
+    static Progress progressLine(Map<String, String> block, String line) {
+        int equals = line.indexOf('=');
+        if (equals < 0) {
+            return null;
+        }
+        String key = line.substring(0, equals).trim();
+        String value = line.substring(equals + 1).trim();
+        if (!key.equals("progress")) {
+            block.put(key, value);
+            return null;
+        }
+        // out_time_us and out_time_ms are both microseconds
+        String outTime = block.getOrDefault("out_time_us", block.get("out_time_ms"));
+        Progress progress = new Progress(
+                number(outTime) / 1_000_000,
+                (long) number(block.get("frame")),
+                number(block.get("fps")),
+                number(block.get("speed") != null ? block.get("speed").replace("x", "") : null),
+                value.equals("end"));
+        block.clear();
+        return progress;
+    }
+
+    private static double number(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private final class ProgressReader implements Runnable {
+        private final InputStream input;
+        private final Consumer<Progress> listener;
+        private final Thread thread;
+        // System.nanoTime of the last report that moved the output time on
+        private volatile long lastAdvance = System.nanoTime();
+        private volatile Progress last;
+
+        ProgressReader(InputStream input, Consumer<Progress> listener) {
+            this.input = input;
+            this.listener = listener;
+            this.thread = Thread.ofVirtual().name("progress-reader").start(this);
+        }
+
+        @Override
+        public void run() {
+            Map<String, String> block = new HashMap<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Progress progress = progressLine(block, line);
+                    if (progress == null) {
+                        continue;
+                    }
+                    Progress previous = last;
+                    if (previous == null || progress.outTimeSeconds() > previous.outTimeSeconds()
+                            || progress.frames() > previous.frames()) {
+                        lastAdvance = System.nanoTime();
+                    }
+                    last = progress;
+                    try {
+                        listener.accept(progress);
+                    } catch (RuntimeException e) {
+                        // keep draining, a stuck pipe would stall ffmpeg
+                        logger.warn("Progress listener failed: {}", e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ffmpeg redraws its progress line with \r, so both \r and \n end a line
+    private final class StderrReader implements Runnable {
+        private final InputStream input;
+        private final String description;
+        private final Deque<String> lines = new ArrayDeque<>();
+        private final Thread thread;
+        private String progress;
+
+        StderrReader(InputStream input, String description) {
+            this.input = input;
+            this.description = description;
+            this.thread = Thread.ofVirtual().name("stderr-reader").start(this);
+        }
+
+        @Override
+        public void run() {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (input) {
+                int n;
+                while ((n = input.read(buffer)) >= 0) {
+                    for (int i = 0; i < n; i++) {
+                        if (buffer[i] == '\r' || buffer[i] == '\n') {
+                            line(line.toString(StandardCharsets.UTF_8));
+                            line.reset();
+                        } else {
+                            line.write(buffer[i]);
+                        }
+                    }
+                }
+                line(line.toString(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void line(String line) {
+            if (line.isBlank()) {
+                return;
+            }
+            if (line.startsWith("frame=") || line.startsWith("size=")) {
+                progress = line;
+                return;
+            }
+            logger.debug("{}: {}", description, line);
+            synchronized (lines) {
+                if (lines.size() == KEPT_LINES) {
+                    lines.removeFirst();
+                }
+                lines.addLast(line);
+            }
+        }
+
+        Stats stats() {
+            return progress != null ? parseStats(progress) : null;
+        }
+
+        String lastLines() {
+            synchronized (lines) {
+                return lines.isEmpty() ? "" : ": " + String.join(" | ", lines);
+            }
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.Entity.TranscodeStrategy;
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.exception.VideoException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes a video into the adaptive bitrate ladder. All renditions come out of a single ffmpeg
+ * run, so the source is decoded once and the encoders work in parallel:
+ * <pre>
+ * {videoId}/master.m3u8              variants with BANDWIDTH / RESOLUTION
+ * {videoId}/{rendition}/index.m3u8   media playlist of one rendition
+ * {videoId}/{rendition}/segment_000.ts  MPEG-TS segments, or with transcode.packaging=fmp4
+ * {videoId}/{rendition}/media.mp4      one CMAF file, segments addressed by byte range
+ * </pre>
+ * Keyframes are forced on segment boundaries so players can switch renditions at any segment.
+ * Playlists are EVENT playlists that are published while encoding runs, so a video can be
+ * watched from its first finished segment on.
+ * <p>
+ * Long sources are cut at keyframes into chunks that are encoded side by side, then the
+ * per-chunk playlists are stitched back together. A chunk runs one single-threaded encoder per
+ * rendition and a job runs as many chunks at once as fit {@code transcode.threads-per-job}, so a
+ * chunked job stays within the same thread budget the scheduler sizes its workers by. fMP4
+ * output is never chunked, it has to stay one file per rendition.
+ * <p>
+ * Sources that are already H.264 are not encoded again at the top of the ladder, see
+ * {@link MediaInfo#strategy}.
+ */
+@Component
+public class HlsTranscoder {
+    public static final String MASTER_PLAYLIST = "master.m3u8";
+    public static final String MEDIA_PLAYLIST = "index.m3u8";
+    private static final int SEGMENT_SECONDS = 10;
+    private static final String CHUNK_DIR = ".chunks";
+    private static final long CHUNK_STOP_SECONDS = 30;
+    // GOP length for renditions encoded next to a copied source, only the forced keyframes count
+    private static final int NO_EXTRA_KEYFRAMES = 100_000;
+
+    private final Logger logger = LoggerFactory.getLogger(HlsTranscoder.class);
+
+    @Autowired
+    private FfmpegRunner ffmpegRunner;
+    @Autowired
+    private MediaProbe mediaProbe;
+    @Autowired
+    private ThumbnailGenerator thumbnailGenerator;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TranscodeProgressTracker progressTracker;
+
+    @Value("${files.video.hsl}")
+    String HSL_DIR;
+
+    @Value("${transcode.threads-per-job}")
+    int THREADS_PER_JOB;
+
+    @Value("${transcode.ladder}")
+    String LADDER;
+
+    @Value("${transcode.remux.encode-lower-renditions}")
+    boolean REMUX_ENCODE_LOWER;
+
+    @Value("${transcode.packaging}")
+    String PACKAGING;
+
+    @Value("${transcode.chunk.seconds}")
+    double CHUNK_SECONDS;
+
+    @Value("${transcode.chunk.min-duration-seconds}")
+    double CHUNK_MIN_DURATION;
+
+    @Value("${transcode.watchdog.stall-timeout-seconds}")
+    long STALL_TIMEOUT_SECONDS;
+
+    private List<Rendition> ladder;
+    private boolean fmp4;
+
+    @PostConstruct
+    public void init() {
+        ladder = Rendition.parseLadder(LADDER);
+        if (!PACKAGING.equals("ts") && !PACKAGING.equals("fmp4")) {
+            throw new IllegalArgumentException("transcode.packaging must be ts or fmp4, not " + PACKAGING);
+        }
+        fmp4 = PACKAGING.equals("fmp4");
+    }
+
+    public void transcode(Video video) throws IOException, InterruptedException {
+        transcode(video, Duration.ofSeconds(STALL_TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Transcodes the video, killing any ffmpeg run whose output time stands still for
+     * {@code stallTimeout}. Progress is reported to the {@link TranscodeProgressTracker} meanwhile.
+     */
+    public void transcode(Video video, Duration stallTimeout) throws IOException, InterruptedException {
+        progressTracker.start(video.getVideoId());
+        try {
+            encode(video, stallTimeout);
+        } finally {
+            progressTracker.finish(video.getVideoId());
+        }
+    }
+
+    private void encode(Video video, Duration stallTimeout) throws IOException, InterruptedException {
+        // keyed by the source's content hash, so re-uploads of the same file share one output
+        Path outputPath = Paths.get(HSL_DIR, video.outputKey());
+        MediaInfo source = MediaInfo.of(video);
+        if (source == null) {
+            source = mediaProbe.probe(video.getFilePath());
+            source.applyTo(video);
+        }
+        if (source.keyframeIntervalSeconds() <= 0) {
+            // left out of the probe at upload, only the strategy chosen here depends on it
+            source = source.withKeyframeInterval(mediaProbe.scanKeyframeInterval(video.getFilePath(), source.durationSeconds()));
+            source.applyTo(video);
+        }
+        progressTracker.encoding(video.getVideoId(), source.durationSeconds());
+        TranscodeStrategy strategy = source.strategy(SEGMENT_SECONDS);
+        video.setTranscodeStrategy(strategy);
+        List<Rendition> renditions = renditions(source, strategy);
+        for (Rendition rendition : renditions) {
+            Files.createDirectories(outputPath.resolve(rendition.name()));
+        }
+        logger.info("Transcoding video {} with {} into {}", video.getVideoId(), strategy,
+                renditions.stream().map(Rendition::name).toList());
+
+        // a chunk takes one thread per rendition, splitting only pays when several fit the budget
+        int chunkParallelism = THREADS_PER_JOB / renditions.size();
+        List<TranscodeChunk> chunks = strategy == TranscodeStrategy.FULL_TRANSCODE && !fmp4 && chunkParallelism > 1
+                ? planChunks(video, source) : List.of();
+        if (chunks.size() > 1) {
+            transcodeChunks(video, source, renditions, chunks, chunkParallelism, outputPath, stallTimeout);
+        } else {
+            // the encoders share the job's thread budget, the scheduler sized the pool for it
+            int threads = Math.max(1, THREADS_PER_JOB / renditions.size());
+            List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-i", video.getFilePath()));
+            command.addAll(ladderArgs(source, renditions, strategy, threads));
+            command.addAll(hlsArgs(source, renditions, outputPath.resolve("%v"), "",
+                    outputPath.resolve("%v").resolve(MEDIA_PLAYLIST), true));
+            command.addAll(thumbnailGenerator.outputArgs(video.outputKey()));
+            encoded(ffmpegRunner.run(command, "HLS transcode of video " + video.getVideoId(),
+                    report -> progressTracker.update(video.getVideoId(), "video", report.outTimeSeconds(), report),
+                    stallTimeout), strategy);
+        }
+
+        progressTracker.stage(video.getVideoId(), TranscodeProgressTracker.STAGE_THUMBNAILS);
+        thumbnailGenerator.ensure(video);
+        thumbnailGenerator.generatePreviews(video);
+    }
+
+    /**
+     * Copy strategies put the source itself at the top of the ladder, named after its height,
+     * and only encode the steps below it.
+     */
+    private List<Rendition> renditions(MediaInfo source, TranscodeStrategy strategy) {
+        if (strategy == TranscodeStrategy.FULL_TRANSCODE) {
+            return Rendition.forSource(ladder, source);
+        }
+        List<Rendition> renditions = new ArrayList<>();
+        if (REMUX_ENCODE_LOWER) {
+            ladder.stream().filter(rendition -> rendition.height() < source.shortSide()).forEach(renditions::add);
+        }
+        Rendition top = ladder.get(ladder.size() - 1);
+        renditions.add(new Rendition(source.shortSide() + "p", source.shortSide(),
+                (int) (source.bitrate() / 1000), top.audioKbps()));
+        return renditions;
+    }
+
+    private List<TranscodeChunk> planChunks(Video video, MediaInfo source) throws IOException, InterruptedException {
+        if (CHUNK_SECONDS <= 0 || source.durationSeconds() < CHUNK_MIN_DURATION) {
+            return List.of();
+        }
+        List<Double> keyframes = mediaProbe.keyframes(video.getFilePath(), 0);
+        return TranscodeChunk.plan(keyframes, source.durationSeconds(), CHUNK_SECONDS);
+    }
+
+    private void transcodeChunks(Video video, MediaInfo source, List<Rendition> renditions, List<TranscodeChunk> chunks,
+                                 int parallelism, Path outputPath, Duration stallTimeout) throws IOException, InterruptedException {
+        logger.info("Splitting video {} into {} chunks, {} at a time", video.getVideoId(), chunks.size(), parallelism);
+        Path workPath = outputPath.resolve(CHUNK_DIR);
+        // left behind by a run that died with its node
+        FileSystemUtils.deleteRecursively(workPath);
+        boolean[] done = new boolean[chunks.size()];
+        List<Future<Void>> tasks = new ArrayList<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService chunkPool = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, Thread.currentThread().getName() + "-chunk-" + threadCount.incrementAndGet()));
+        for (TranscodeChunk chunk : chunks) {
+            tasks.add(chunkPool.submit((Callable<Void>) () -> {
+                transcodeChunk(video, source, renditions, chunk, outputPath, workPath.resolve(String.valueOf(chunk.index())),
+                        stallTimeout);
+                publishChunks(done, chunk.index(), renditions, outputPath, workPath);
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new VideoException("Chunk transcode of video " + video.getVideoId() + " failed", e.getCause());
+        } finally {
+            tasks.forEach(task -> task.cancel(true));
+            chunkPool.shutdownNow();
+            deleteWhenStopped(chunkPool, workPath);
+        }
+    }
+
+    // a failed or interrupted run must not leave partial chunk outputs behind either, but only
+    // once the chunk encoders still running have stopped writing them
+    private void deleteWhenStopped(ExecutorService chunkPool, Path workPath) {
+        try {
+            if (!chunkPool.awaitTermination(CHUNK_STOP_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Chunk encoders did not stop within {}s, deleting {} anyway", CHUNK_STOP_SECONDS, workPath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            FileSystemUtils.deleteRecursively(workPath);
+        } catch (IOException e) {
+            logger.warn("Could not delete chunk outputs {}: {}", workPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Chunks finish in any order; every time the run of finished chunks from the start grows,
+     * the stitched playlists are republished so viewers can watch what is already encoded.
+     */
+    private void publishChunks(boolean[] done, int finished, List<Rendition> renditions,
+                               Path outputPath, Path workPath) throws IOException {
+        synchronized (done) {
+            int published = 0;
+            while (published < done.length && done[published]) {
+                published++;
+            }
+            done[finished] = true;
+            int ready = published;
+            while (ready < done.length && done[ready]) {
+                ready++;
+            }
+            if (ready == published) {
+                return;
+            }
+
+            for (Rendition rendition : renditions) {
+                List<String> playlists = new ArrayList<>();
+                for (int i = 0; i < ready; i++) {
+                    playlists.add(Files.readString(workPath.resolve(String.valueOf(i))
+                            .resolve(rendition.name()).resolve(MEDIA_PLAYLIST)));
+                }
+                writeAtomically(outputPath.resolve(rendition.name()).resolve(MEDIA_PLAYLIST),
+                        PlaylistStitcher.stitch(playlists, ready == done.length));
+            }
+            if (published == 0) {
+                // variant URIs are relative and the bitrates are the configured ones, so chunk 0's master fits
+                writeAtomically(outputPath.resolve(MASTER_PLAYLIST),
+                        Files.readString(workPath.resolve("0").resolve(MASTER_PLAYLIST)));
+            }
+        }
+    }
+
+    private static void writeAtomically(Path path, String content) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temporary, content);
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void transcodeChunk(Video video, MediaInfo source, List<Rendition> renditions, TranscodeChunk chunk,
+                                Path outputPath, Path chunkPath, Duration stallTimeout) throws IOException, InterruptedException {
+        for (Rendition rendition : renditions) {
+            Files.createDirectories(chunkPath.resolve(rendition.name()));
+        }
+        String start = seconds(chunk.start());
+        List<String> command = new ArrayList<>(List.of(
+                "ffmpeg", "-y", "-ss", start, "-t", seconds(chunk.duration()), "-i", video.getFilePath()
+        ));
+        // parallelism comes from the chunks, a single thread per encoder is the most efficient
+        command.addAll(ladderArgs(source, renditions, TranscodeStrategy.FULL_TRANSCODE, 1));
+        command.addAll(List.of("-output_ts_offset", start));
+        command.addAll(hlsArgs(source, renditions, outputPath.resolve("%v"), String.format("_%03d", chunk.index()),
+                chunkPath.resolve("%v").resolve(MEDIA_PLAYLIST), chunk.index() == 0));
+        if (chunk.index() == 0) {
+            command.addAll(thumbnailGenerator.outputArgs(video.outputKey()));
+        }
+        encoded(ffmpegRunner.run(command, "HLS transcode of chunk " + chunk.index() + " of video " + video.getVideoId(),
+                report -> progressTracker.update(video.getVideoId(), "chunk-" + chunk.index(), chunkEncoded(chunk, report), report),
+                stallTimeout), TranscodeStrategy.FULL_TRANSCODE);
+    }
+
+    // with -output_ts_offset the reported output time starts at the chunk's start
+    private static double chunkEncoded(TranscodeChunk chunk, FfmpegRunner.Progress report) {
+        if (report.end()) {
+            return chunk.duration();
+        }
+        double time = report.outTimeSeconds() >= chunk.start() ? report.outTimeSeconds() - chunk.start() : report.outTimeSeconds();
+        return Math.min(time, chunk.duration());
+    }
+
+    // encode speed of one ffmpeg run, a chunk counts as a run of its own
+    private void encoded(FfmpegRunner.Stats stats, TranscodeStrategy strategy) {
+        if (stats == null) {
+            return;
+        }
+        DistributionSummary.builder("transcode.encode.fps")
+                .tag("strategy", strategy.name())
+                .register(meterRegistry)
+                .record(stats.fps());
+        DistributionSummary.builder("transcode.encode.speed")
+                .description("Media time encoded per second of wall time")
+                .baseUnit("realtime")
+                .tag("strategy", strategy.name())
+                .register(meterRegistry)
+                .record(stats.speed());
+    }
+
+    /**
+     * Video and audio options for every rendition. With a copy strategy the last rendition is
+     * the source stream itself, and the encoded ones put their keyframes where the source has
+     * them so all renditions are cut into segments at the same points.
+     */
+    private List<String> ladderArgs(MediaInfo source, List<Rendition> renditions, TranscodeStrategy strategy, int threads) {
+        boolean copyTop = strategy != TranscodeStrategy.FULL_TRANSCODE;
+        int encoded = copyTop ? renditions.size() - 1 : renditions.size();
+
+        List<String> args = new ArrayList<>();
+        if (encoded > 0) {
+            StringJoiner filter = new StringJoiner(";");
+            StringBuilder split = new StringBuilder("[0:v:0]split=" + encoded);
+            for (int i = 0; i < encoded; i++) {
+                int[] size = renditions.get(i).outputSize(source);
+                split.append("[in").append(i).append(']');
+                filter.add("[in" + i + "]scale=" + size[0] + ":" + size[1] + "[v" + i + "]");
+            }
+            args.addAll(List.of("-filter_complex", split + ";" + filter));
+        }
+
+        for (int i = 0; i < renditions.size(); i++) {
+            Rendition rendition = renditions.get(i);
+            if (i < encoded) {
+                args.addAll(List.of(
+                        "-map", "[v" + i + "]",
+                        "-c:v:" + i, "libx264",
+                        "-b:v:" + i, rendition.videoKbps() + "k",
+                        "-maxrate:v:" + i, rendition.videoKbps() * 107 / 100 + "k",
+                        "-bufsize:v:" + i, rendition.videoKbps() * 2 + "k"
+                ));
+            } else {
+                args.addAll(List.of("-map", "0:v:0", "-c:v:" + i, "copy"));
+            }
+            if (source.hasAudio()) {
+                args.addAll(List.of("-map", "0:a:0"));
+                if (strategy == TranscodeStrategy.REMUX) {
+                    args.addAll(List.of("-c:a:" + i, "copy"));
+                } else {
+                    args.addAll(List.of("-c:a:" + i, "aac", "-b:a:" + i, rendition.audioKbps() + "k"));
+                }
+            }
+        }
+
+        if (encoded > 0) {
+            args.addAll(List.of("-threads", String.valueOf(threads), "-sc_threshold", "0"));
+            if (copyTop) {
+                args.addAll(List.of("-force_key_frames", "source", "-g", String.valueOf(NO_EXTRA_KEYFRAMES)));
+            } else {
+                args.addAll(List.of("-force_key_frames", "expr:gte(t,n_forced*" + SEGMENT_SECONDS + ")"));
+            }
+        }
+        return args;
+    }
+
+    /**
+     * HLS muxer options. {@code chunkSuffix} keeps the media files of chunks apart, it is empty
+     * when the whole source is encoded in one run.
+     */
+    private List<String> hlsArgs(MediaInfo source, List<Rendition> renditions, Path renditionPattern,
+                                 String chunkSuffix, Path playlistPattern, boolean master) {
+        List<String> args = new ArrayList<>(List.of(
+                "-f", "hls", "-hls_time", String.valueOf(SEGMENT_SECONDS), "-hls_list_size", "0",
+                // playlists grow while encoding, ffmpeg renames them into place on every update
+                "-hls_playlist_type", "event"
+        ));
+        if (fmp4) {
+            // one fragmented MP4 per rendition, the playlist addresses init section and fragments by byte range
+            args.addAll(List.of(
+                    "-hls_segment_type", "fmp4", "-hls_flags", "single_file",
+                    "-hls_segment_filename", renditionPattern.resolve("media" + chunkSuffix + ".mp4").toString()
+            ));
+        } else {
+            // segments only appear under their name once complete
+            args.addAll(List.of(
+                    "-hls_flags", "temp_file",
+                    "-hls_segment_filename", renditionPattern.resolve("segment" + chunkSuffix + "_%03d.ts").toString()
+            ));
+        }
+        args.addAll(List.of("-var_stream_map", streamMap(source, renditions)));
+        if (master) {
+            args.addAll(List.of("-master_pl_name", MASTER_PLAYLIST));
+        }
+        args.add(playlistPattern.toString());
+        return args;
+    }
+
+    private String streamMap(MediaInfo source, List<Rendition> renditions) {
+        StringJoiner map = new StringJoiner(" ");
+        for (int i = 0; i < renditions.size(); i++) {
+            map.add("v:" + i + (source.hasAudio() ? ",a:" + i : "") + ",name:" + renditions.get(i).name());
+        }
+        return map.toString();
+    }
+
+    private static String seconds(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,72 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.Entity.TranscodeStrategy;
+import com.videoplayback.videoStream.Entity.Video;
+
+import java.util.Set;
+
+/**
+ * What {@link MediaProbe} learned about a source file. Width and height are the displayed
+ * size, i.e. already swapped for sources recorded with a 90/270 degree rotation.
+ * {@code audioCodec} is {@code null} for sources without sound.
+ */
+public record MediaInfo(int width, int height, int rotation, double durationSeconds, long bitrate,
+                        String videoCodec, String pixelFormat, String audioCodec, double keyframeIntervalSeconds) {
+
+    // what every HLS client decodes: 8-bit 4:2:0 H.264 and AAC
+    private static final Set<String> HLS_PIXEL_FORMATS = Set.of("yuv420p", "yuvj420p");
+
+    public int shortSide() {
+        return Math.min(width, height);
+    }
+
+    public boolean hasAudio() {
+        return audioCodec != null;
+    }
+
+    /**
+     * Video can only be copied when players can decode it as is, MPEG-TS has no way to carry
+     * the rotation, and keyframes come often enough to cut segments of about the target length.
+     */
+    public TranscodeStrategy strategy(int segmentSeconds) {
+        boolean copyVideo = "h264".equals(videoCodec)
+                && HLS_PIXEL_FORMATS.contains(pixelFormat)
+                && rotation % 360 == 0
+                && keyframeIntervalSeconds > 0 && keyframeIntervalSeconds <= segmentSeconds;
+        if (!copyVideo) {
+            return TranscodeStrategy.FULL_TRANSCODE;
+        }
+        return !hasAudio() || "aac".equals(audioCodec) ? TranscodeStrategy.REMUX : TranscodeStrategy.AUDIO_TRANSCODE;
+    }
+
+    public MediaInfo withKeyframeInterval(double seconds) {
+        return new MediaInfo(width, height, rotation, durationSeconds, bitrate, videoCodec, pixelFormat, audioCodec, seconds);
+    }
+
+    public void applyTo(Video video) {
+        video.setWidth(width);
+        video.setHeight(height);
+        video.setRotation(rotation);
+        video.setDurationSeconds(durationSeconds);
+        video.setBitrate(bitrate);
+        video.setVideoCodec(videoCodec);
+        video.setPixelFormat(pixelFormat);
+        video.setAudioCodec(audioCodec);
+        video.setKeyframeIntervalSeconds(keyframeIntervalSeconds);
+    }
+
+    /**
+     * The probe stored at ingest, or {@code null} for videos uploaded before probing existed.
+     */
+    public static MediaInfo of(Video video) {
+        if (video.getWidth() == null || video.getHeight() == null) {
+            return null;
+        }
+        return new MediaInfo(video.getWidth(), video.getHeight(),
+                video.getRotation() != null ? video.getRotation() : 0,
+                video.getDurationSeconds() != null ? video.getDurationSeconds() : 0,
+                video.getBitrate() != null ? video.getBitrate() : 0,
+                video.getVideoCodec(), video.getPixelFormat(), video.getAudioCodec(),
+                video.getKeyframeIntervalSeconds() != null ? video.getKeyframeIntervalSeconds() : 0);
+    }
+}
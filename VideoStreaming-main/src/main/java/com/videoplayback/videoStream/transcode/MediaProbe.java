@@ -0,0 +1,132 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoplayback.videoStream.exception.VideoException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads stream information from a source file with ffprobe.
+ */
+@Component
+public class MediaProbe {
+    // enough to see the encoder's GOP structure without reading a long file end to end
+    private static final double KEYFRAME_SCAN_SECONDS = 120;
+
+    @Autowired
+    private FfmpegRunner ffmpegRunner;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public MediaInfo probe(String filePath) throws IOException, InterruptedException {
+        String json = ffmpegRunner.capture(List.of(
+                "ffprobe", "-v", "error", "-print_format", "json", "-show_streams", "-show_format", filePath
+        ), "Probe of " + filePath);
+        JsonNode root = objectMapper.readTree(json);
+
+        JsonNode video = null;
+        JsonNode audio = null;
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            if ("video".equals(type) && video == null && stream.path("disposition").path("attached_pic").asInt() == 0) {
+                video = stream;
+            } else if ("audio".equals(type) && audio == null) {
+                audio = stream;
+            }
+        }
+        if (video == null) {
+            throw new VideoException("No video stream found in " + filePath);
+        }
+
+        int width = video.path("width").asInt();
+        int height = video.path("height").asInt();
+        if (width <= 0 || height <= 0) {
+            throw new VideoException("Could not determine the video size of " + filePath);
+        }
+        int rotation = rotation(video);
+        if (Math.abs(rotation) % 180 == 90) {
+            // ffmpeg auto-rotates while encoding, so the output comes out the other way round
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+
+        JsonNode format = root.path("format");
+        double duration = format.path("duration").asDouble();
+        return new MediaInfo(width, height, rotation, duration,
+                format.path("bit_rate").asLong(),
+                video.path("codec_name").asText(null),
+                video.path("pix_fmt").asText(null),
+                audio != null ? audio.path("codec_name").asText(null) : null,
+                // unknown until scanKeyframeInterval, which reads packets and is too slow for an upload request
+                0);
+    }
+
+    /**
+     * Longest distance between keyframes near the start of the source. The transcode job measures
+     * it when it picks a strategy.
+     */
+    public double scanKeyframeInterval(String filePath, double durationSeconds) throws IOException, InterruptedException {
+        return keyframeInterval(keyframes(filePath, KEYFRAME_SCAN_SECONDS), Math.min(durationSeconds, KEYFRAME_SCAN_SECONDS));
+    }
+
+    /**
+     * Longest distance between keyframes within the scanned part of the source; a part without
+     * a second keyframe counts as one long interval.
+     */
+    static double keyframeInterval(List<Double> keyframes, double scanned) {
+        if (keyframes.size() < 2) {
+            return scanned;
+        }
+        double longest = scanned - keyframes.get(keyframes.size() - 1);
+        for (int i = 1; i < keyframes.size(); i++) {
+            longest = Math.max(longest, keyframes.get(i) - keyframes.get(i - 1));
+        }
+        return longest;
+    }
+
+    /**
+     * Presentation times of the video keyframes, read from the packet index without decoding.
+     * A positive {@code limitSeconds} only scans that much from the start of the file.
+     */
+    public List<Double> keyframes(String filePath, double limitSeconds) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                "ffprobe", "-v", "error", "-select_streams", "v:0",
+                "-show_entries", "packet=pts_time,flags", "-of", "csv=p=0"
+        ));
+        if (limitSeconds > 0) {
+            command.addAll(List.of("-read_intervals", "%+" + (long) limitSeconds));
+        }
+        command.add(filePath);
+        String csv = ffmpegRunner.capture(command, "Keyframe scan of " + filePath);
+
+        List<Double> keyframes = new ArrayList<>();
+        for (String line : csv.split("\n")) {
+            String[] fields = line.trim().split(",");
+            if (fields.length >= 2 && fields[1].startsWith("K") && !"N/A".equals(fields[0])) {
+                keyframes.add(Double.parseDouble(fields[0]));
+            }
+        }
+        Collections.sort(keyframes);
+        return keyframes;
+    }
+
+    private int rotation(JsonNode stream) {
+        JsonNode rotate = stream.path("tags").path("rotate");
+        if (!rotate.isMissingNode()) {
+            return rotate.asInt();
+        }
+        for (JsonNode sideData : stream.path("side_data_list")) {
+            if (sideData.has("rotation")) {
+                return sideData.path("rotation").asInt();
+            }
+        }
+        return 0;
+    }
+}
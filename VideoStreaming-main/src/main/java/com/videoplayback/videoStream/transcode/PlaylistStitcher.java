@@ -0,0 +1,86 @@
+package com.videoplayback.videoStream.transcode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Joins the media playlists of independently encoded chunks into one EVENT playlist, ended once
+ * the last chunk is in. The chunks were encoded with their source offset applied to the
+ * timestamps, but every chunk's AAC encoder starts with its own priming samples, so each chunk
+ * after the first opens with {@code #EXT-X-DISCONTINUITY} and players resync audio there instead
+ * of drifting or leaving a gap at the boundary.
+ * <p>
+ * Per-segment tags such as {@code #EXT-X-BYTERANGE} and each chunk's {@code #EXT-X-MAP} are kept
+ * with their segments, so fMP4 chunks stitch the same way as MPEG-TS ones.
+ */
+public final class PlaylistStitcher {
+    // tags that describe the playlist as a whole, the stitched playlist writes its own
+    private static final Set<String> PLAYLIST_TAGS = Set.of(
+            "#EXTM3U", "#EXT-X-VERSION", "#EXT-X-TARGETDURATION", "#EXT-X-MEDIA-SEQUENCE",
+            "#EXT-X-PLAYLIST-TYPE", "#EXT-X-ENDLIST", "#EXT-X-INDEPENDENT-SEGMENTS");
+
+    private PlaylistStitcher() {
+    }
+
+    public static String stitch(List<String> chunkPlaylists, boolean ended) {
+        StringBuilder segments = new StringBuilder();
+        long version = 3;
+        long targetDuration = 0;
+        for (int chunk = 0; chunk < chunkPlaylists.size(); chunk++) {
+            String playlist = chunkPlaylists.get(chunk);
+            List<String> pending = new ArrayList<>();
+            boolean boundary = chunk > 0;
+            for (String line : playlist.split("\\r?\\n")) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String tag = line.contains(":") ? line.substring(0, line.indexOf(':')) : line;
+                if (tag.equals("#EXT-X-VERSION")) {
+                    version = Math.max(version, Long.parseLong(value(line)));
+                } else if (tag.equals("#EXT-X-TARGETDURATION")) {
+                    targetDuration = Math.max(targetDuration, Long.parseLong(value(line)));
+                } else if (PLAYLIST_TAGS.contains(tag)) {
+                    // replaced by the stitched playlist's own header
+                } else if (tag.equals("#EXT-X-MAP")) {
+                    boundary = discontinuity(segments, boundary);
+                    segments.append(line.replaceFirst("URI=\"(?:[^\"]*/)?([^\"/]*)\"", "URI=\"$1\"")).append('\n');
+                } else if (line.startsWith("#")) {
+                    if (tag.equals("#EXTINF")) {
+                        // EXTINF rounded up has to fit the target duration
+                        String seconds = value(line).split(",")[0];
+                        targetDuration = Math.max(targetDuration, (long) Math.ceil(Double.parseDouble(seconds)));
+                    }
+                    pending.add(line);
+                } else {
+                    // all media files end up next to the stitched playlist
+                    boundary = discontinuity(segments, boundary);
+                    pending.forEach(tagLine -> segments.append(tagLine).append('\n'));
+                    segments.append(line.substring(line.lastIndexOf('/') + 1)).append('\n');
+                    pending.clear();
+                }
+            }
+        }
+
+        return "#EXTM3U\n"
+                + "#EXT-X-VERSION:" + version + "\n"
+                + "#EXT-X-TARGETDURATION:" + targetDuration + "\n"
+                + "#EXT-X-MEDIA-SEQUENCE:0\n"
+                + "#EXT-X-PLAYLIST-TYPE:EVENT\n"
+                + segments
+                + (ended ? "#EXT-X-ENDLIST\n" : "");
+    }
+
+    // marks the start of a chunk, ahead of its init section and first segment
+    private static boolean discontinuity(StringBuilder segments, boolean boundary) {
+        if (boundary) {
+            segments.append("#EXT-X-DISCONTINUITY\n");
+        }
+        return false;
+    }
+
+    private static String value(String line) {
+        return line.substring(line.indexOf(':') + 1).trim();
+    }
+}
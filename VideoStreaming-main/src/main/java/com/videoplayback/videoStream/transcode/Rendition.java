@@ -0,0 +1,62 @@
+package com.videoplayback.videoStream.transcode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One step of the adaptive bitrate ladder. {@code height} is the short side of the output, so
+ * portrait sources get a "720p" rendition that is 720 pixels wide.
+ */
+public record Rendition(String name, int height, int videoKbps, int audioKbps) {
+
+    /**
+     * Parses {@code transcode.ladder}: comma separated {@code height:videoKbps:audioKbps} steps.
+     */
+    public static List<Rendition> parseLadder(String ladder) {
+        List<Rendition> renditions = new ArrayList<>();
+        for (String step : ladder.split(",")) {
+            String[] parts = step.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid ladder step '" + step + "', expected height:videoKbps:audioKbps");
+            }
+            int height = Integer.parseInt(parts[0].trim());
+            renditions.add(new Rendition(height + "p", height,
+                    Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim())));
+        }
+        renditions.sort(Comparator.comparingInt(Rendition::height));
+        return renditions;
+    }
+
+    /**
+     * The steps worth encoding for a source: nothing above the source resolution. A source
+     * smaller than the lowest step still gets that step's bitrates, at its own size.
+     */
+    public static List<Rendition> forSource(List<Rendition> ladder, MediaInfo source) {
+        int sourceHeight = source.shortSide();
+        List<Rendition> selected = ladder.stream()
+                .filter(rendition -> rendition.height() <= sourceHeight)
+                .toList();
+        if (!selected.isEmpty()) {
+            return selected;
+        }
+        Rendition lowest = ladder.get(0);
+        return List.of(new Rendition(lowest.name(), sourceHeight, lowest.videoKbps(), lowest.audioKbps()));
+    }
+
+    /**
+     * Output size for a source, keeping its aspect ratio and rounding to the even dimensions
+     * libx264 requires.
+     */
+    public int[] outputSize(MediaInfo source) {
+        int shortSide = even(height);
+        int longSide = even(Math.round((float) Math.max(source.width(), source.height()) * height / source.shortSide()));
+        return source.width() >= source.height()
+                ? new int[]{longSide, shortSide}
+                : new int[]{shortSide, longSide};
+    }
+
+    private static int even(int value) {
+        return Math.max(2, value - value % 2);
+    }
+}
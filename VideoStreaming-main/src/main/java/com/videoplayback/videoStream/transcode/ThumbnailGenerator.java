@@ -0,0 +1,283 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.Entity.Video;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Thumbnail stage of the transcoding pipeline. Normally the frame is taken as an extra output of
+ * the HLS transcode so the source is decoded once; {@link #generate} is the fallback for when that
+ * produced nothing. Until the real thumbnail exists, {@link #PLACEHOLDER} is served in its place.
+ * <p>
+ * {@link #generatePreviews} then adds the smaller WebP copies list screens ask for and the sprite
+ * sheets with their WebVTT track that players show while seeking. All files of an asset are
+ * named {@code <outputKey>_...} in files.thumbnail.
+ */
+@Component
+public class ThumbnailGenerator {
+    public static final String PLACEHOLDER = "placeholder_thumb.jpg";
+    private static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+    private static final String THUMBNAIL_POSITION = "00:00:01.000";
+    private static final String SPRITE_TRACK_SUFFIX = "_sprites.vtt";
+    private static final Pattern PREVIEW_FILE = Pattern.compile(
+            "(.+?)(" + Pattern.quote(THUMBNAIL_SUFFIX) + "|_thumb_\\d+\\.webp|_sprite_\\d{3,}\\.webp|" + Pattern.quote(SPRITE_TRACK_SUFFIX) + ")");
+    private static final String WEBP_QUALITY = "75";
+
+    private final Logger logger = LoggerFactory.getLogger(ThumbnailGenerator.class);
+
+    @Autowired
+    private FfmpegRunner ffmpegRunner;
+
+    @Value("${files.thumbnail}")
+    String THUMBNAIL_DIR;
+
+    // widths of the WebP copies, a request for another width is resized from the JPEG
+    @Value("${thumbnail.sizes}")
+    String SIZES;
+
+    @Value("${thumbnail.sprite.interval-seconds}")
+    int SPRITE_INTERVAL;
+
+    @Value("${thumbnail.sprite.width}")
+    int SPRITE_WIDTH;
+
+    @Value("${thumbnail.sprite.columns}")
+    int SPRITE_COLUMNS;
+
+    @Value("${thumbnail.sprite.rows}")
+    int SPRITE_ROWS;
+
+    // SIZES parsed once, sizeFor runs on the thumbnail request path
+    List<Integer> sizes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        sizes = parseSizes(SIZES);
+        Path placeholder = Paths.get(THUMBNAIL_DIR, PLACEHOLDER);
+        if (Files.exists(placeholder)) {
+            return;
+        }
+        Files.createDirectories(placeholder.getParent());
+        BufferedImage image = new BufferedImage(320, 180, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x20, 0x20, 0x20));
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        ImageIO.write(image, "jpg", placeholder.toFile());
+    }
+
+    public static String fileName(String videoId) {
+        return videoId + THUMBNAIL_SUFFIX;
+    }
+
+    public static boolean isVideoThumbnail(String fileName) {
+        return fileName.endsWith(THUMBNAIL_SUFFIX);
+    }
+
+    public static String outputKeyOf(String thumbnailFileName) {
+        return thumbnailFileName.substring(0, thumbnailFileName.length() - THUMBNAIL_SUFFIX.length());
+    }
+
+    /**
+     * The output key a thumbnail, WebP size, sprite sheet or sprite track belongs to, or
+     * {@code null} for any other file.
+     */
+    public static String ownerOf(String fileName) {
+        Matcher matcher = PREVIEW_FILE.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    public static String sizedFileName(String outputKey, int width) {
+        return outputKey + "_thumb_" + width + ".webp";
+    }
+
+    public static String spriteFileName(String outputKey, int sheet) {
+        return String.format("%s_sprite_%03d.webp", outputKey, sheet);
+    }
+
+    public static String spriteTrackName(String outputKey) {
+        return outputKey + SPRITE_TRACK_SUFFIX;
+    }
+
+    // ascending widths from a comma separated list such as "640, 160,320"
+    static List<Integer> parseSizes(String sizes) {
+        return Arrays.stream(sizes.split(",")).map(String::trim).map(Integer::parseInt).sorted().toList();
+    }
+
+    public List<Integer> sizes() {
+        return sizes;
+    }
+
+    // the smallest WebP copy at least as wide as asked for, null when even the largest is smaller
+    public Integer sizeFor(int width) {
+        return sizes().stream().filter(size -> size >= width).findFirst().orElse(null);
+    }
+
+    public Path path(String videoId) {
+        return Paths.get(THUMBNAIL_DIR, fileName(videoId));
+    }
+
+    /**
+     * ffmpeg output options that write the thumbnail from the same decode as the other outputs
+     * of the command they are appended to.
+     */
+    public List<String> outputArgs(String videoId) {
+        return List.of(
+                "-map", "0:v:0", "-ss", THUMBNAIL_POSITION, "-frames:v", "1", "-f", "image2",
+                path(videoId).toString()
+        );
+    }
+
+    /**
+     * Makes sure the thumbnail exists once a transcode has run. Clips shorter than the thumbnail
+     * position get their first frame instead. Failures are logged, they never fail the video.
+     */
+    public void ensure(Video video) throws InterruptedException {
+        Path thumbnail = path(video.outputKey());
+        if (Files.exists(thumbnail)) {
+            return;
+        }
+        try {
+            generate(video.getFilePath(), thumbnail, "0");
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate thumbnail for video {}: {}", video.getVideoId(), e.getMessage());
+        }
+    }
+
+    /**
+     * WebP copies of the thumbnail and the seek preview sprites. Like the thumbnail itself these
+     * are optional: failures are logged and the video is served without them.
+     */
+    public void generatePreviews(Video video) throws InterruptedException {
+        MediaInfo source = MediaInfo.of(video);
+        try {
+            generateSizes(video.outputKey(), source);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate thumbnail sizes for video {}: {}", video.getVideoId(), e.getMessage());
+        }
+        try {
+            generateSprites(video, source);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate preview sprites for video {}: {}", video.getVideoId(), e.getMessage());
+        }
+    }
+
+    private void generateSizes(String outputKey, MediaInfo source) throws IOException, InterruptedException {
+        Path thumbnail = path(outputKey);
+        if (!Files.exists(thumbnail)) {
+            return;
+        }
+        // never upscale
+        List<Integer> widths = sizes().stream().filter(width -> source == null || width <= source.width()).toList();
+        if (widths.isEmpty()) {
+            return;
+        }
+        // one decode of the JPEG, split into a scaled output per size
+        StringBuilder graph = new StringBuilder("[0:v]split=" + widths.size());
+        for (int i = 0; i < widths.size(); i++) {
+            graph.append("[s").append(i).append("]");
+        }
+        for (int i = 0; i < widths.size(); i++) {
+            graph.append(";[s").append(i).append("]scale=").append(widths.get(i)).append(":-2[o").append(i).append("]");
+        }
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-v", "error", "-i", thumbnail.toString(),
+                "-filter_complex", graph.toString()));
+        for (int i = 0; i < widths.size(); i++) {
+            command.addAll(List.of("-map", "[o" + i + "]", "-frames:v", "1", "-c:v", "libwebp", "-quality", WEBP_QUALITY,
+                    Paths.get(THUMBNAIL_DIR, sizedFileName(outputKey, widths.get(i))).toString()));
+        }
+        ffmpegRunner.run(command, "Thumbnail sizes for " + outputKey);
+    }
+
+    /**
+     * One tile every interval seconds, columns x rows tiles per sheet. When the source has a
+     * keyframe at least that often only keyframes are decoded, which is far cheaper than a
+     * full decode and close enough for a preview.
+     */
+    private void generateSprites(Video video, MediaInfo source) throws IOException, InterruptedException {
+        if (source == null || source.durationSeconds() <= 0 || source.width() <= 0) {
+            return;
+        }
+        String outputKey = video.outputKey();
+        int tileHeight = Math.max(2, (int) Math.round((double) SPRITE_WIDTH * source.height() / source.width() / 2) * 2);
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-v", "error"));
+        if (source.keyframeIntervalSeconds() > 0 && source.keyframeIntervalSeconds() <= SPRITE_INTERVAL) {
+            command.addAll(List.of("-skip_frame", "nokey"));
+        }
+        command.addAll(List.of(
+                "-i", video.getFilePath(), "-an", "-sn",
+                "-vf", "fps=1/" + SPRITE_INTERVAL + ",scale=" + SPRITE_WIDTH + ":" + tileHeight
+                        + ",tile=" + SPRITE_COLUMNS + "x" + SPRITE_ROWS,
+                "-c:v", "libwebp", "-quality", "60", "-start_number", "0", "-f", "image2",
+                Paths.get(THUMBNAIL_DIR, outputKey + "_sprite_%03d.webp").toString()
+        ));
+        ffmpegRunner.run(command, "Preview sprites for video " + video.getVideoId());
+
+        Path track = Paths.get(THUMBNAIL_DIR, spriteTrackName(outputKey));
+        Path temporary = track.resolveSibling(track.getFileName() + ".tmp");
+        Files.writeString(temporary, spriteTrack(outputKey, source.durationSeconds(), SPRITE_INTERVAL,
+                SPRITE_WIDTH, tileHeight, SPRITE_COLUMNS, SPRITE_ROWS));
+        Files.move(temporary, track, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * WebVTT track pointing every interval of the video at its tile, as a media fragment
+     * ({@code #xywh=}) of the sprite sheet it is on.
+     */
+    static String spriteTrack(String outputKey, double durationSeconds, int interval,
+                              int width, int height, int columns, int rows) {
+        StringBuilder track = new StringBuilder("WEBVTT\n");
+        int perSheet = columns * rows;
+        int tiles = (int) Math.ceil(durationSeconds / interval);
+        for (int i = 0; i < tiles; i++) {
+            int onSheet = i % perSheet;
+            track.append('\n')
+                    .append(timestamp(i * (double) interval)).append(" --> ")
+                    .append(timestamp(Math.min((i + 1) * (double) interval, durationSeconds))).append('\n')
+                    .append(spriteFileName(outputKey, i / perSheet))
+                    .append("#xywh=").append(onSheet % columns * width).append(',').append(onSheet / columns * height)
+                    .append(',').append(width).append(',').append(height).append('\n');
+        }
+        return track.toString();
+    }
+
+    private static String timestamp(double seconds) {
+        long millis = Math.round(seconds * 1000);
+        return String.format("%02d:%02d:%02d.%03d", millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+
+    // the thumbnail with its sizes, sprites and track
+    public void delete(String outputKey) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(THUMBNAIL_DIR), outputKey + "_*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public void generate(String videoPath, Path thumbnail, String position) throws IOException, InterruptedException {
+        ffmpegRunner.run(List.of(
+                "ffmpeg", "-y", "-ss", position, "-i", videoPath,
+                "-frames:v", "1", "-f", "image2", thumbnail.toString()
+        ), "Thumbnail generation for " + videoPath);
+    }
+}
@@ -0,0 +1,34 @@
+package com.videoplayback.videoStream.transcode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A slice of the source, starting on a keyframe, that is encoded independently of the others.
+ */
+public record TranscodeChunk(int index, double start, double duration) {
+
+    /**
+     * Cuts the source into chunks of at least {@code chunkSeconds}, each starting on the first
+     * keyframe at or after its nominal start so no chunk depends on frames of the previous one.
+     */
+    public static List<TranscodeChunk> plan(List<Double> keyframes, double totalDuration, double chunkSeconds) {
+        List<Double> starts = new ArrayList<>();
+        starts.add(0.0);
+        for (double keyframe : keyframes) {
+            double previous = starts.get(starts.size() - 1);
+            if (keyframe - previous >= chunkSeconds && totalDuration - keyframe >= chunkSeconds / 2) {
+                starts.add(keyframe);
+            }
+        }
+
+        List<TranscodeChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < starts.size(); i++) {
+            double start = starts.get(i);
+            double end = i + 1 < starts.size() ? starts.get(i + 1) : totalDuration;
+            chunks.add(new TranscodeChunk(i, start, end - start));
+        }
+        return chunks;
+    }
+
+}
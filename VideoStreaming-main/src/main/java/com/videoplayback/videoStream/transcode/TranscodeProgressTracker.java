@@ -0,0 +1,98 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.response.TranscodeProgress;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live progress of the transcodes running on this node, fed by the {@code -progress} reports of
+ * their ffmpeg processes. A chunked transcode reports one part per chunk; the parts' encoded
+ * media time adds up to the job's share of the source duration.
+ */
+@Component
+public class TranscodeProgressTracker {
+    public static final String STAGE_PROBING = "probing";
+    public static final String STAGE_ENCODING = "encoding";
+    public static final String STAGE_THUMBNAILS = "thumbnails";
+
+    private record Part(double encodedSeconds, double fps, double speed, boolean done) {
+    }
+
+    private static final class Job {
+        private final Map<String, Part> parts = new ConcurrentHashMap<>();
+        private volatile double durationSeconds;
+        private volatile String stage = STAGE_PROBING;
+        private volatile Instant updatedAt = Instant.now();
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public void start(String videoId) {
+        jobs.put(videoId, new Job());
+    }
+
+    public void encoding(String videoId, double durationSeconds) {
+        Job job = jobs.get(videoId);
+        if (job != null) {
+            job.durationSeconds = durationSeconds;
+            job.stage = STAGE_ENCODING;
+            job.updatedAt = Instant.now();
+        }
+    }
+
+    public void stage(String videoId, String stage) {
+        Job job = jobs.get(videoId);
+        if (job != null) {
+            job.stage = stage;
+            job.updatedAt = Instant.now();
+        }
+    }
+
+    /**
+     * One report of one ffmpeg process of the job; {@code encodedSeconds} is the media time of
+     * the source that part has finished.
+     */
+    public void update(String videoId, String part, double encodedSeconds, FfmpegRunner.Progress progress) {
+        Job job = jobs.get(videoId);
+        if (job != null) {
+            job.parts.put(part, new Part(encodedSeconds, progress.fps(), progress.speed(), progress.end()));
+            job.updatedAt = Instant.now();
+        }
+    }
+
+    public void finish(String videoId) {
+        jobs.remove(videoId);
+    }
+
+    // videos with a transcode running here
+    public Set<String> running() {
+        return jobs.keySet();
+    }
+
+    // null when no transcode of the video is running here
+    public TranscodeProgress get(String videoId) {
+        Job job = jobs.get(videoId);
+        if (job == null) {
+            return null;
+        }
+        double encoded = 0;
+        double fps = 0;
+        double speed = 0;
+        for (Part part : job.parts.values()) {
+            encoded += part.encodedSeconds();
+            if (!part.done()) {
+                fps += part.fps();
+                speed += part.speed();
+            }
+        }
+        double duration = job.durationSeconds;
+        double percent = duration > 0 ? Math.min(100, encoded * 100 / duration) : 0;
+        Long eta = duration > 0 && speed > 0 ? Math.round(Math.max(0, duration - encoded) / speed) : null;
+        return new TranscodeProgress(videoId, VideoStatus.PROCESSING, job.stage, percent, fps, speed, eta, job.updatedAt);
+    }
+}
@@ -0,0 +1,372 @@
+package com.videoplayback.videoStream;
+
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.Reposetory.VideoRepo;
+import com.videoplayback.videoStream.transcode.HlsTranscoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How many simultaneous HLS viewers one node serves before segment latency degrades. Boots the
+ * application on a random port against an in-memory H2 database, writes a synthetic segment tree
+ * for a set of completed videos into files.video.hsl, then runs a step per viewer count:
+ * every viewer fetches master.m3u8 and a media playlist, buffers the first segments back to back
+ * and then requests one segment per segment duration, like a player at real playback speed.
+ * Range clients read random 1 MB ranges of the sources alongside them.
+ * <p>
+ * Segments of one rendition are hard links to one file, so they all stay in the page cache; the
+ * numbers are for serving, not for the disk. Client and server share the JVM, the allocation
+ * rate of the server is taken from the Tomcat worker threads alone.
+ * <p>
+ * {@code mvn test -Dtest=ConcurrentViewerLoadTest -Dbenchmark=true}, with
+ * {@code -Dloadtest.viewers=100,500,1000,2000 -Dloadtest.range-clients=10 -Dloadtest.step-seconds=60}
+ * to change the steps.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "server.tomcat.max-connections=20000",
+        "logging.level.root=WARN"
+})
+class ConcurrentViewerLoadTest {
+    private static final int[] VIEWERS = Arrays.stream(System.getProperty("loadtest.viewers", "100,500,1000,2000")
+            .split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    private static final int RANGE_CLIENTS = Integer.getInteger("loadtest.range-clients", 10);
+    private static final int STEP_SECONDS = Integer.getInteger("loadtest.step-seconds", 60);
+    private static final int VIDEOS = 10;
+    private static final int SEGMENTS = 30;
+    private static final int SEGMENT_SECONDS = 10;
+    private static final int BUFFERED_SEGMENTS = 3;
+    private static final long SOURCE_BYTES = 64L * 1024 * 1024;
+    private static final long RANGE_BYTES = 1024 * 1024;
+    // name, width, height, total kbps; the bitrates decide the segment sizes
+    private static final Object[][] RENDITIONS = {
+            {"240p", 426, 240, 464},
+            {"480p", 854, 480, 1296},
+            {"720p", 1280, 720, 2928},
+    };
+
+    private static final Path ROOT;
+
+    static {
+        try {
+            ROOT = Files.createTempDirectory("viewer-load-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void fileTrees(DynamicPropertyRegistry registry) {
+        registry.add("files.video", () -> ROOT.resolve("videos") + "/");
+        registry.add("files.video.hsl", () -> ROOT.resolve("hls") + "/");
+        registry.add("files.thumbnail", () -> ROOT.resolve("thumbnails") + "/");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    VideoRepo videoRepo;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Test
+    void segmentLatencyByConcurrentViewers() throws Exception {
+        List<Video> videos = syntheticVideos();
+        System.out.printf("%8s %9s %9s %10s %10s %10s %10s %10s %10s %7s %12s %12s%n",
+                "viewers", "req/s", "MB/s", "seg p50", "seg p99", "seg p999", "pl p99", "range p50", "range p99",
+                "errors", "server MB/s", "jvm MB/s");
+        for (int viewers : VIEWERS) {
+            Step step = run(videos, viewers);
+            System.out.printf("%8d %9.1f %9.1f %8.2fms %8.2fms %8.2fms %8.2fms %8.2fms %8.2fms %7d %12.1f %12.1f%n",
+                    viewers, step.requests.get() / step.seconds, step.bytes.get() / step.seconds / 1e6,
+                    step.segments.percentile(50), step.segments.percentile(99), step.segments.percentile(99.9),
+                    step.playlists.percentile(99), step.ranges.percentile(50), step.ranges.percentile(99),
+                    step.errors.get(), step.serverAllocated / step.seconds / 1e6, step.allocated / step.seconds / 1e6);
+            assertTrue(step.segments.count() > 0, "no segment was served with " + viewers + " viewers");
+        }
+    }
+
+    private Step run(List<Video> videos, int viewers) throws InterruptedException {
+        Step step = new Step();
+        long deadline = System.nanoTime() + Duration.ofSeconds(STEP_SECONDS).toNanos();
+        long serverBefore = serverAllocatedBytes();
+        long before = allocatedBytes();
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < viewers; i++) {
+                // spread the sessions over one segment duration instead of starting them all at once
+                long delay = Duration.ofSeconds(SEGMENT_SECONDS).toMillis() * i / viewers;
+                clients.submit(() -> viewer(videos, step, deadline, delay));
+            }
+            for (int i = 0; i < RANGE_CLIENTS; i++) {
+                clients.submit(() -> rangeClient(videos, step, deadline));
+            }
+        }
+        step.finish(System.nanoTime() - started, allocatedBytes() - before, serverAllocatedBytes() - serverBefore);
+        return step;
+    }
+
+    private Void viewer(List<Video> videos, Step step, long deadline, long delay) throws InterruptedException {
+        Thread.sleep(delay);
+        Random random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Video video = videos.get(random.nextInt(videos.size()));
+            URI master = URI.create(base() + "/stream/" + video.getVideoId() + "/" + HlsTranscoder.MASTER_PLAYLIST);
+            String masterPlaylist = fetchText(master, step);
+            if (masterPlaylist == null) {
+                continue;
+            }
+            List<String> variants = uris(masterPlaylist);
+            URI media = master.resolve(variants.get(random.nextInt(variants.size())));
+            String mediaPlaylist = fetchText(media, step);
+            if (mediaPlaylist == null) {
+                continue;
+            }
+            List<String> segments = uris(mediaPlaylist);
+            long next = System.nanoTime();
+            for (int i = 0; i < segments.size() && System.nanoTime() < deadline; i++) {
+                fetch(HttpRequest.newBuilder(media.resolve(segments.get(i))).build(), step.segments, step);
+                if (i >= BUFFERED_SEGMENTS - 1) {
+                    next += Duration.ofSeconds(SEGMENT_SECONDS).toNanos();
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(Duration.ofNanos(Math.min(wait, Math.max(0, deadline - System.nanoTime()))));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void rangeClient(List<Video> videos, Step step, long deadline) throws InterruptedException {
+        Random random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Video video = videos.get(random.nextInt(videos.size()));
+            long start = random.nextLong(SOURCE_BYTES - RANGE_BYTES);
+            fetch(HttpRequest.newBuilder(URI.create(base() + "/stream/range/" + video.getVideoId()))
+                    .header("Range", "bytes=" + start + "-" + (start + RANGE_BYTES - 1))
+                    .build(), step.ranges, step);
+            Thread.sleep(100);
+        }
+        return null;
+    }
+
+    private String fetchText(URI uri, Step step) {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            step.playlists.add(System.nanoTime() - started);
+            step.served(response.body().length(), response.statusCode());
+            return response.statusCode() == 200 ? response.body() : null;
+        } catch (IOException | InterruptedException e) {
+            step.failed();
+            return null;
+        }
+    }
+
+    private void fetch(HttpRequest request, Latencies latencies, Step step) {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long bytes;
+            try (InputStream body = response.body()) {
+                bytes = body.transferTo(OutputStream.nullOutputStream());
+            }
+            latencies.add(System.nanoTime() - started);
+            step.served(bytes, response.statusCode());
+        } catch (IOException | InterruptedException e) {
+            step.failed();
+        }
+    }
+
+    private String base() {
+        return "http://localhost:" + port + "/api/v1";
+    }
+
+    private static List<String> uris(String playlist) {
+        return playlist.lines().map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith("#")).toList();
+    }
+
+    /**
+     * Completed videos with a source for the range clients and a master playlist over every
+     * rendition, all of whose segments link to one file of that rendition's bitrate.
+     */
+    private List<Video> syntheticVideos() throws IOException {
+        Path sources = Files.createDirectories(ROOT.resolve("videos"));
+        Path hls = Files.createDirectories(ROOT.resolve("hls"));
+        Random random = new Random(7);
+
+        Path source = sources.resolve("source.mp4");
+        writeRandom(source, SOURCE_BYTES, random);
+        Path[] segmentFiles = new Path[RENDITIONS.length];
+        for (int r = 0; r < RENDITIONS.length; r++) {
+            segmentFiles[r] = ROOT.resolve(RENDITIONS[r][0] + ".ts");
+            writeRandom(segmentFiles[r], (int) RENDITIONS[r][3] * 1000L / 8 * SEGMENT_SECONDS, random);
+        }
+
+        List<Video> videos = new ArrayList<>();
+        for (int v = 0; v < VIDEOS; v++) {
+            String videoId = "loadtest-" + v;
+            Path output = Files.createDirectories(hls.resolve(videoId));
+            StringBuilder master = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n");
+            for (int r = 0; r < RENDITIONS.length; r++) {
+                Object[] rendition = RENDITIONS[r];
+                master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append((int) rendition[3] * 1000)
+                        .append(",RESOLUTION=").append(rendition[1]).append('x').append(rendition[2]).append('\n')
+                        .append(rendition[0]).append('/').append(HlsTranscoder.MEDIA_PLAYLIST).append('\n');
+                Path renditionDir = Files.createDirectories(output.resolve((String) rendition[0]));
+                StringBuilder media = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:"
+                        + SEGMENT_SECONDS + "\n#EXT-X-MEDIA-SEQUENCE:0\n#EXT-X-PLAYLIST-TYPE:VOD\n");
+                for (int s = 0; s < SEGMENTS; s++) {
+                    String segment = String.format("segment_%03d.ts", s);
+                    Files.createLink(renditionDir.resolve(segment), segmentFiles[r]);
+                    media.append("#EXTINF:").append(SEGMENT_SECONDS).append(".000000,\n").append(segment).append('\n');
+                }
+                media.append("#EXT-X-ENDLIST\n");
+                Files.writeString(renditionDir.resolve(HlsTranscoder.MEDIA_PLAYLIST), media);
+            }
+            Files.writeString(output.resolve(HlsTranscoder.MASTER_PLAYLIST), master);
+
+            Path videoSource = sources.resolve(videoId + ".mp4");
+            Files.createLink(videoSource, source);
+            videos.add(Video.builder()
+                    .videoId(videoId)
+                    .title("Load test video " + v)
+                    .description("Synthetic segments")
+                    .contentType("video/mp4")
+                    .filePath(videoSource.toString())
+                    .sizeBytes(SOURCE_BYTES)
+                    .status(VideoStatus.COMPLETED)
+                    .build());
+        }
+        return videoRepo.saveAll(videos);
+    }
+
+    private static void writeRandom(Path path, long size, Random random) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                file.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return threadMXBean().getTotalThreadAllocatedBytes();
+    }
+
+    // Tomcat's request threads, the part of the JVM that is the server
+    private static long serverAllocatedBytes() {
+        long[] ids = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("http-nio-"))
+                .mapToLong(Thread::threadId)
+                .toArray();
+        return Arrays.stream(threadMXBean().getThreadAllocatedBytes(ids)).filter(bytes -> bytes > 0).sum();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    // request latencies in nanoseconds, sorted once the step is over
+    static final class Latencies {
+        private long[] nanos = new long[1024];
+        private int count;
+
+        synchronized void add(long latency) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        // in milliseconds
+        synchronized double percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    static final class Step {
+        final Latencies segments = new Latencies();
+        final Latencies playlists = new Latencies();
+        final Latencies ranges = new Latencies();
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        double seconds;
+        long allocated;
+        long serverAllocated;
+
+        void served(long length, int status) {
+            requests.incrementAndGet();
+            bytes.addAndGet(length);
+            if (status >= 400) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void failed() {
+            requests.incrementAndGet();
+            errors.incrementAndGet();
+        }
+
+        void finish(long nanos, long allocated, long serverAllocated) {
+            this.seconds = nanos / 1e9;
+            this.allocated = allocated;
+            this.serverAllocated = serverAllocated;
+        }
+    }
+}
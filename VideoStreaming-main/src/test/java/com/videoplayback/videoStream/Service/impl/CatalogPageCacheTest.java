@@ -0,0 +1,83 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import com.videoplayback.videoStream.response.VideoPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogPageCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private CatalogPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CatalogPageCache();
+        ReflectionTestUtils.setField(cache, "maxPages", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 5L);
+        cache.clock = Clock.fixed(Instant.ofEpochSecond(1000), ZoneOffset.UTC);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @Test
+    void pagesAndEtagsAgeOutWithoutAnyLocalChange() {
+        VideoPage before = cache.get(null, null, 50, this::load);
+        cache.clock = Clock.offset(cache.clock, Duration.ofSeconds(5));
+
+        // a change on another node bumps no generation here
+        assertNotEquals(before.etag(), cache.etag(null, null, 50));
+        assertNotSame(before, cache.get(null, null, 50, this::load));
+        assertEquals(2, loads.get());
+    }
+
+    private VideoPage load(String etag) {
+        int n = loads.incrementAndGet();
+        return new VideoPage(("[" + n + "]").getBytes(StandardCharsets.UTF_8), etag, null);
+    }
+
+    @Test
+    void pagesAreKeyedByStatusCursorAndLimit() {
+        VideoPage first = cache.get(null, null, 50, this::load);
+        assertSame(first, cache.get(null, null, 50, this::load));
+        cache.get(VideoStatus.COMPLETED, null, 50, this::load);
+        cache.get(null, "abc", 50, this::load);
+        cache.get(null, null, 20, this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void anyChangeReloadsEveryPage() {
+        VideoPage before = cache.get(null, null, 50, this::load);
+        cache.onStatusChanged(new VideoStatusChangedEvent("a", VideoStatus.COMPLETED));
+
+        VideoPage after = cache.get(null, null, 50, this::load);
+        assertNotEquals(before.etag(), after.etag());
+    }
+
+    @Test
+    void etagIsKnownWithoutLoadingThePage() {
+        String etag = cache.etag(null, "abc", 50);
+        assertEquals(0, loads.get());
+        assertEquals(etag, cache.get(null, "abc", 50, this::load).etag());
+        assertNotEquals(etag, cache.etag(null, "abd", 50));
+        assertNotEquals(etag, cache.etag(null, "abc", 20));
+        assertNotEquals(etag, cache.etag(VideoStatus.COMPLETED, "abc", 50));
+
+        cache.onDeleted(new VideoDeletedEvent("a"));
+        assertNotEquals(etag, cache.etag(null, "abc", 50));
+    }
+}
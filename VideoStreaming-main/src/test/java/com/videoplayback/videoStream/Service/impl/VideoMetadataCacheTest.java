@@ -0,0 +1,77 @@
+package com.videoplayback.videoStream.Service.impl;
+
+import com.videoplayback.videoStream.Entity.Video;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.event.VideoDeletedEvent;
+import com.videoplayback.videoStream.event.VideoStatusChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoMetadataCacheTest {
+
+    private final Map<String, Video> table = new HashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private VideoMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VideoMetadataCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "notFoundTtlSeconds", 10L);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    private Optional<Video> findById(String videoId) {
+        queries.incrementAndGet();
+        return Optional.ofNullable(table.get(videoId));
+    }
+
+    @Test
+    void repeatedLookupsHitTheDatabaseOnce() {
+        table.put("a", Video.builder().videoId("a").status(VideoStatus.PROCESSING).build());
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(VideoStatus.PROCESSING, cache.get("a", this::findById).orElseThrow().getStatus());
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void unknownIdsAreCachedUntilTheVideoIsCreated() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cache.get("b", this::findById).isEmpty());
+        }
+        assertEquals(1, queries.get());
+
+        // saving a video always publishes its first status
+        table.put("b", Video.builder().videoId("b").status(VideoStatus.UPLOADED).build());
+        cache.onStatusChanged(new VideoStatusChangedEvent("b", VideoStatus.UPLOADED));
+        assertTrue(cache.get("b", this::findById).isPresent());
+    }
+
+    @Test
+    void statusChangesAndDeletesDropTheEntry() {
+        table.put("c", Video.builder().videoId("c").status(VideoStatus.PROCESSING).build());
+        cache.get("c", this::findById);
+
+        table.put("c", Video.builder().videoId("c").status(VideoStatus.COMPLETED).build());
+        cache.onStatusChanged(new VideoStatusChangedEvent("c", VideoStatus.COMPLETED));
+        assertEquals(VideoStatus.COMPLETED, cache.get("c", this::findById).orElseThrow().getStatus());
+
+        table.remove("c");
+        cache.onDeleted(new VideoDeletedEvent("c"));
+        assertTrue(cache.get("c", this::findById).isEmpty());
+        assertEquals(3, queries.get());
+    }
+}
@@ -0,0 +1,133 @@
+package com.videoplayback.videoStream.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoEventBroadcasterTest {
+
+    // records what it is sent; a stalled one blocks in send like a client that stopped reading
+    private static class TestEmitter extends SseEmitter {
+        private final CountDownLatch stall;
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        TestEmitter(CountDownLatch stall) {
+            this.stall = stall;
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) {
+            if (stall != null) {
+                try {
+                    stall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            frames.add(items.stream().map(item -> item.getData().toString()).reduce("", String::concat));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+    private final CountDownLatch stall = new CountDownLatch(1);
+    private VideoEventBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new VideoEventBroadcaster() {
+            @Override
+            SseEmitter newEmitter() {
+                return emitters.removeFirst();
+            }
+        };
+        broadcaster.TIMEOUT_MS = 60_000;
+        broadcaster.RECONNECT_MS = 3000;
+        broadcaster.QUEUE_CAPACITY = 4;
+        broadcaster.WRITER_THREADS = 2;
+        ReflectionTestUtils.setField(broadcaster, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(broadcaster, "meterRegistry", new SimpleMeterRegistry());
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stall.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void stalledSubscriberDoesNotDelayTheOthers() throws Exception {
+        TestEmitter stalled = new TestEmitter(stall);
+        TestEmitter healthy = new TestEmitter(null);
+        emitters.add(stalled);
+        emitters.add(healthy);
+        broadcaster.subscribeCatalog();
+        broadcaster.subscribeCatalog();
+
+        for (int i = 0; i < 20; i++) {
+            VideoStatusChangedEvent event = new VideoStatusChangedEvent("v" + i, VideoStatus.UPLOADED);
+            assertTimeoutPreemptively(Duration.ofMillis(500), () -> broadcaster.onStatusChanged(event));
+            // after the subscription comment, each event reaches the healthy client right away
+            int delivered = i + 2;
+            assertTrue(eventually(() -> healthy.frames.size() == delivered));
+        }
+        assertTrue(healthy.frames.get(20).contains("\"videoId\":\"v19\""));
+        // while the stalled one never got past its first frame
+        assertTrue(stalled.frames.isEmpty());
+        // fell a whole queue behind, so it is dropped and closed once its write returns
+        assertEquals(1, broadcaster.subscribers());
+        stall.countDown();
+        assertTrue(eventually(() -> stalled.completed));
+        assertFalse(healthy.completed);
+    }
+
+    @Test
+    void framesArriveInPublishingOrder() throws Exception {
+        TestEmitter emitter = new TestEmitter(null);
+        emitters.add(emitter);
+        broadcaster.subscribeCatalog();
+
+        broadcaster.onStatusChanged(new VideoStatusChangedEvent("a", VideoStatus.UPLOADED));
+        broadcaster.onStatusChanged(new VideoStatusChangedEvent("a", VideoStatus.FAILED));
+        broadcaster.onDeleted(new VideoDeletedEvent("a"));
+
+        assertTrue(eventually(() -> emitter.frames.size() == 4));
+        assertTrue(emitter.frames.get(1).contains("UPLOADED"));
+        assertTrue(emitter.frames.get(2).contains("FAILED"));
+        assertTrue(emitter.frames.get(3).startsWith("event:" + VideoEventBroadcaster.EVENT_DELETED));
+        // the catalog stream outlives a single video
+        assertFalse(emitter.completed);
+    }
+
+    private static boolean eventually(BooleanSupplier check) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (check.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+package com.videoplayback.videoStream.ingest;
+
+import com.videoplayback.videoStream.exception.UploadRejectedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartStreamTest {
+
+    private static final String BOUNDARY = "----VideoPlayBoundary7MA4YWxk";
+
+    @Test
+    void readsFilePartAndFieldsInAnyOrder() throws IOException {
+        byte[] video = new byte[300_000];
+        new Random(42).nextBytes(video);
+        // a near miss of the delimiter inside the payload must not end the part
+        byte[] nearMiss = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(nearMiss, 0, video, 1000, nearMiss.length);
+
+        byte[] body = body(video);
+        MultipartStream multipart = new MultipartStream(new TrickleInputStream(body, 7), BOUNDARY, 4096);
+
+        Map<String, String> headers = multipart.nextPart();
+        assertEquals("video/mp4", headers.get("content-type"));
+        assertEquals("clip.mp4", MultipartStream.parameters(headers.get("content-disposition")).get("filename"));
+        assertArrayEquals(video, multipart.partBody().readAllBytes());
+
+        headers = multipart.nextPart();
+        assertEquals("title", MultipartStream.parameters(headers.get("content-disposition")).get("name"));
+        assertEquals("Holiday \"2024\"", new String(multipart.partBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        headers = multipart.nextPart();
+        assertEquals("description", MultipartStream.parameters(headers.get("content-disposition")).get("name"));
+        // skipping a part without reading it is allowed
+        assertNull(multipart.nextPart());
+        assertNull(multipart.nextPart());
+    }
+
+    @Test
+    void truncatedBodyIsRejected() throws IOException {
+        byte[] body = body(new byte[10_000]);
+        byte[] truncated = new byte[body.length / 2];
+        System.arraycopy(body, 0, truncated, 0, truncated.length);
+
+        MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY, 4096);
+        multipart.nextPart();
+        assertThrows(UploadRejectedException.class, () -> multipart.partBody().readAllBytes());
+    }
+
+    @Test
+    void extractsBoundaryFromContentType() {
+        assertEquals("abc", MultipartStream.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartStream.boundary("multipart/form-data; charset=utf-8; boundary=\"a b\""));
+        assertNull(MultipartStream.boundary("application/json"));
+    }
+
+    private byte[] body(byte[] video) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("preamble to ignore\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"clip.mp4\"\r\n"
+                + "Content-Type: video/mp4\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(video);
+        out.write(("\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "Holiday \"2024\""
+                + "\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"description\"\r\n\r\n"
+                + "Beach"
+                + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns at most a few bytes per read so delimiters end up split across buffer refills.
+     */
+    private static class TrickleInputStream extends FilterInputStream {
+        private final int maxRead;
+
+        TrickleInputStream(byte[] data, int maxRead) {
+            super(new ByteArrayInputStream(data));
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, maxRead));
+        }
+    }
+}
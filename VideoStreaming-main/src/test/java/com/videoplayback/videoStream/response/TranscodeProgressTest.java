@@ -0,0 +1,28 @@
+package com.videoplayback.videoStream.response;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscodeProgressTest {
+
+    @Test
+    void describesEveryStatus() {
+        for (VideoStatus status : VideoStatus.values()) {
+            TranscodeProgress progress = TranscodeProgress.of("a", status);
+            assertEquals(status, progress.status());
+            assertNull(progress.updatedAt());
+        }
+        assertEquals(100, TranscodeProgress.of("a", VideoStatus.COMPLETED).percent());
+    }
+
+    @Test
+    void videoWithoutStatusCountsAsUploaded() {
+        TranscodeProgress progress = TranscodeProgress.of("a", null);
+        assertEquals("a", progress.videoId());
+        assertEquals(VideoStatus.UPLOADED, progress.status());
+        assertEquals("queued", progress.stage());
+        assertEquals(0, progress.percent());
+    }
+}
@@ -0,0 +1,93 @@
+package com.videoplayback.videoStream.search;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.response.VideoResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Build time and query latency percentiles at one million videos with a Zipf-like vocabulary.
+ * Needs a few GB of heap: {@code mvn test -Dtest=InvertedIndexBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InvertedIndexBenchmark {
+    private static final int VIDEOS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 2_000;
+
+    private final Random random = new Random(7);
+    private final String[] words = vocabulary();
+
+    @Test
+    void queryLatencyAtOneMillionVideos() {
+        InvertedIndex index = new InvertedIndex();
+        long started = System.nanoTime();
+        for (int i = 0; i < VIDEOS; i++) {
+            index.put(VideoResponse.builder()
+                    .videoId("video-" + i)
+                    .title(text(4))
+                    .description(text(20))
+                    .status(VideoStatus.COMPLETED)
+                    .build());
+        }
+        System.out.printf("build: %d videos in %d ms%n", index.size(), (System.nanoTime() - started) / 1_000_000);
+
+        run(index, "exact", false, false);
+        run(index, "prefix", true, false);
+        run(index, "typo", false, true);
+    }
+
+    private void run(InvertedIndex index, String kind, boolean prefix, boolean typo) {
+        long[] nanos = new long[QUERIES];
+        int matched = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            String first = word();
+            String second = word();
+            if (prefix) {
+                second = second.substring(0, Math.max(2, second.length() - 2));
+            }
+            if (typo && second.length() > 4) {
+                second = second.substring(0, 2) + second.charAt(3) + second.charAt(2) + second.substring(4);
+            }
+            long started = System.nanoTime();
+            InvertedIndex.Result result = index.search(first + " " + second, null, 0, 20);
+            nanos[q] = System.nanoTime() - started;
+            matched += result.total() > 0 ? 1 : 0;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-6s p50=%.2fms p99=%.2fms max=%.2fms matched=%d/%d%n", kind,
+                nanos[QUERIES / 2] / 1e6, nanos[QUERIES * 99 / 100] / 1e6, nanos[QUERIES - 1] / 1e6, matched, QUERIES);
+        assertTrue(matched > 0);
+    }
+
+    private String text(int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(word()).append(' ');
+        }
+        return text.toString();
+    }
+
+    // a few words are very common, most are rare, like real titles
+    private String word() {
+        return words[(int) Math.floor(Math.pow(random.nextDouble(), 3) * VOCABULARY)];
+    }
+
+    private String[] vocabulary() {
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(8);
+            for (int c = 0; c < length; c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+}
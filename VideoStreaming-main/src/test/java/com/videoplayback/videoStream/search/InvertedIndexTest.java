@@ -0,0 +1,115 @@
+package com.videoplayback.videoStream.search;
+
+import com.videoplayback.videoStream.Entity.VideoStatus;
+import com.videoplayback.videoStream.response.VideoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    private static VideoResponse video(String id, String title, String description, VideoStatus status) {
+        return VideoResponse.builder().videoId(id).title(title).description(description).status(status).build();
+    }
+
+    private static List<String> ids(InvertedIndex.Result result) {
+        return result.hits().stream().map(hit -> hit.video().getVideoId()).toList();
+    }
+
+    private static InvertedIndex sample() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(video("a", "Beach holiday in Portugal", "Surfing at sunset", VideoStatus.COMPLETED));
+        index.put(video("b", "Mountain hike", "A holiday walk above the beach", VideoStatus.COMPLETED));
+        index.put(video("c", "Café tour", "Coffee in Lisbon", VideoStatus.PROCESSING));
+        return index;
+    }
+
+    @Test
+    void tokenizesCaseAndAccentInsensitively() {
+        assertEquals(List.of("cafe", "creme", "brulee", "2024"), InvertedIndex.tokenize("Café-Crème  Brûlée (2024)!"));
+        assertEquals(List.of(), InvertedIndex.tokenize("  ,; "));
+    }
+
+    @Test
+    void titleMatchesRankAboveDescriptionMatches() {
+        InvertedIndex.Result result = sample().search("holiday beach", null, 0, 10);
+        assertEquals(List.of("a", "b"), ids(result));
+        assertEquals(2, result.total());
+    }
+
+    @Test
+    void everyWordHasToMatch() {
+        assertEquals(List.of("a"), ids(sample().search("beach surfing", null, 0, 10)));
+        assertEquals(List.of(), ids(sample().search("beach coffee", null, 0, 10)));
+    }
+
+    @Test
+    void matchesPrefixesAndTypos() {
+        InvertedIndex index = sample();
+        assertEquals(List.of("b"), ids(index.search("moun", null, 0, 10)));
+        assertEquals(List.of("a"), ids(index.search("portgual", null, 0, 10)));
+        assertEquals(List.of("c"), ids(index.search("lisboa cafe", null, 0, 10)));
+        assertEquals(List.of("b"), ids(index.search("moutnain", null, 0, 10)));
+        // exact beats a typo of it
+        index.put(video("d", "Strolls", null, VideoStatus.COMPLETED));
+        index.put(video("e", "Stroll", null, VideoStatus.COMPLETED));
+        assertEquals(List.of("e", "d"), ids(index.search("stroll", null, 0, 10)));
+    }
+
+    @Test
+    void filtersByStatusAndPages() {
+        InvertedIndex index = sample();
+        assertEquals(List.of(), ids(index.search("cafe", VideoStatus.COMPLETED, 0, 10)));
+        assertEquals(List.of("c"), ids(index.search("cafe", VideoStatus.PROCESSING, 0, 10)));
+
+        InvertedIndex.Result second = index.search("holiday", null, 1, 1);
+        assertEquals(List.of("b"), ids(second));
+        assertEquals(2, second.total());
+        assertEquals(List.of(), ids(index.search("holiday", null, 5, 1)));
+    }
+
+    @Test
+    void updatesAndRemovesDocuments() {
+        InvertedIndex index = sample();
+        index.put(video("a", "City lights", null, VideoStatus.COMPLETED));
+        assertEquals(List.of("b"), ids(index.search("beach", null, 0, 10)));
+        assertEquals(List.of("a"), ids(index.search("city", null, 0, 10)));
+
+        // a status change keeps the indexed text
+        index.put(video("c", "Café tour", "Coffee in Lisbon", VideoStatus.COMPLETED));
+        assertEquals(VideoStatus.COMPLETED, index.search("coffee", null, 0, 10).hits().get(0).video().getStatus());
+
+        index.remove("b");
+        assertEquals(List.of(), ids(index.search("mountain", null, 0, 10)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void survivesCompaction() {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.put(video("v" + i, "clip number" + i, null, VideoStatus.COMPLETED));
+        }
+        for (int i = 0; i < 4000; i++) {
+            index.remove("v" + i);
+        }
+        assertEquals(1000, index.size());
+        assertEquals(1000, index.search("clip", null, 0, 10).total());
+        // numbers one digit off are typo matches, ranked below the exact one
+        assertEquals("v4321", ids(index.search("number4321", null, 0, 10)).get(0));
+    }
+
+    @Test
+    void oneEditDistance() {
+        assertTrue(InvertedIndex.withinOneEdit("beach", "beach"));
+        assertTrue(InvertedIndex.withinOneEdit("beach", "bech"));
+        assertTrue(InvertedIndex.withinOneEdit("beach", "beachs"));
+        assertTrue(InvertedIndex.withinOneEdit("beach", "peach"));
+        assertTrue(InvertedIndex.withinOneEdit("beach", "baech"));
+        assertFalse(InvertedIndex.withinOneEdit("beach", "bahce"));
+        assertFalse(InvertedIndex.withinOneEdit("beach", "bea"));
+        assertFalse(InvertedIndex.withinOneEdit("beach", "pearh"));
+    }
+}
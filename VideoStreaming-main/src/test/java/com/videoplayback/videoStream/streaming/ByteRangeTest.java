@@ -0,0 +1,48 @@
+package com.videoplayback.videoStream.streaming;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteRangeTest {
+
+    private static final long LENGTH = 10_000;
+
+    @Test
+    void parsesSingleOpenAndSuffixRanges() {
+        assertEquals(List.of(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", LENGTH));
+        assertEquals(List.of(new ByteRange(9_000, 9_999)), ByteRange.parse("bytes=9000-", LENGTH));
+        assertEquals(List.of(new ByteRange(9_500, 9_999)), ByteRange.parse("bytes=-500", LENGTH));
+        assertEquals(List.of(new ByteRange(0, 9_999)), ByteRange.parse("bytes=-20000", LENGTH));
+        assertEquals(List.of(new ByteRange(9_990, 9_999)), ByteRange.parse("bytes=9990-20000", LENGTH));
+    }
+
+    @Test
+    void parsesAndCoalescesMultipleRanges() {
+        assertEquals(List.of(new ByteRange(0, 99), new ByteRange(500, 599)),
+                ByteRange.parse("bytes=500-599, 0-99", LENGTH));
+        assertEquals(List.of(new ByteRange(0, 199)),
+                ByteRange.parse("bytes=0-99,100-199", LENGTH));
+        assertEquals(List.of(new ByteRange(0, 149), new ByteRange(9_900, 9_999)),
+                ByteRange.parse("bytes=0-99,50-149,-100", LENGTH));
+    }
+
+    @Test
+    void unsatisfiableRangesAreEmpty() {
+        assertTrue(ByteRange.parse("bytes=10000-", LENGTH).isEmpty());
+        assertTrue(ByteRange.parse("bytes=20000-30000", LENGTH).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", LENGTH).isEmpty());
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        assertNull(ByteRange.parse("items=0-10", LENGTH));
+        assertNull(ByteRange.parse("bytes=abc-", LENGTH));
+        assertNull(ByteRange.parse("bytes=500-100", LENGTH));
+        assertNull(ByteRange.parse("bytes=100", LENGTH));
+    }
+}
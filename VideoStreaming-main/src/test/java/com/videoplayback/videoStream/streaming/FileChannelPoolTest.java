@@ -0,0 +1,143 @@
+package com.videoplayback.videoStream.streaming;
+
+import com.videoplayback.videoStream.exception.FileHandlesExhaustedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileChannelPoolTest {
+
+    @TempDir
+    Path dir;
+
+    private FileChannelPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new FileChannelPool();
+        pool.maxOpen = 2;
+        pool.idleTimeoutMs = 0;
+        pool.maxOverflow = 1;
+        pool.overflowWaitMs = 0;
+        ReflectionTestUtils.setField(pool, "meterRegistry", new SimpleMeterRegistry());
+        pool.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private Path file(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content);
+    }
+
+    @Test
+    void requestsForTheSameFileShareOneChannel() throws IOException {
+        Path path = file("a.ts", "segment");
+        FileMetadata metadata = FileMetadata.read(path);
+        try (FileChannelPool.Handle first = pool.acquire(path, metadata);
+             FileChannelPool.Handle second = pool.acquire(path, metadata)) {
+            assertSame(first.channel(), second.channel());
+            assertEquals(1, pool.openCount());
+            assertEquals(2, pool.inUseCount());
+        }
+        assertEquals(0, pool.inUseCount());
+        // still open for the next request until it idles out
+        assertEquals(1, pool.openCount());
+    }
+
+    @Test
+    void replacedFileGetsANewChannel() throws IOException {
+        Path path = file("a.ts", "old");
+        FileChannelPool.Handle old = pool.acquire(path, FileMetadata.read(path));
+
+        Files.writeString(dir.resolve("a.tmp"), "newer");
+        Files.move(dir.resolve("a.tmp"), path, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        try (FileChannelPool.Handle current = pool.acquire(path, FileMetadata.read(path))) {
+            assertNotSame(old.channel(), current.channel());
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            current.channel().read(buffer, 0);
+            assertEquals(5, buffer.position());
+        }
+        old.close();
+    }
+
+    @Test
+    void boundsPooledChannelsAndEvictsIdleOnes() throws IOException {
+        Path a = file("a.ts", "a");
+        Path b = file("b.ts", "b");
+        Path c = file("c.ts", "c");
+        FileChannelPool.Handle ha = pool.acquire(a, FileMetadata.read(a));
+        FileChannelPool.Handle hb = pool.acquire(b, FileMetadata.read(b));
+
+        // both pooled channels are busy, c gets one of its own
+        FileChannelPool.Handle hc = pool.acquire(c, FileMetadata.read(c));
+        assertEquals(3, pool.openCount());
+        hc.close();
+        assertFalse(hc.channel().isOpen());
+        assertEquals(2, pool.openCount());
+
+        // once a is idle it makes room for c
+        ha.close();
+        try (FileChannelPool.Handle pooled = pool.acquire(c, FileMetadata.read(c))) {
+            assertFalse(ha.channel().isOpen());
+            assertEquals(2, pool.openCount());
+        }
+        hb.close();
+
+        pool.closeIdle();
+        assertEquals(0, pool.openCount());
+        assertFalse(hb.channel().isOpen());
+    }
+
+    @Test
+    void turnsRequestsAwayOnceOverflowIsExhausted() throws IOException {
+        Path a = file("a.ts", "a");
+        Path b = file("b.ts", "b");
+        Path c = file("c.ts", "c");
+        Path d = file("d.ts", "d");
+        FileChannelPool.Handle ha = pool.acquire(a, FileMetadata.read(a));
+        FileChannelPool.Handle hb = pool.acquire(b, FileMetadata.read(b));
+        FileChannelPool.Handle hc = pool.acquire(c, FileMetadata.read(c));
+
+        assertThrows(FileHandlesExhaustedException.class, () -> pool.acquire(d, FileMetadata.read(d)));
+        assertEquals(3, pool.openCount());
+        // a busy pooled channel is still shared without opening anything
+        pool.acquire(a, FileMetadata.read(a)).close();
+
+        hc.close();
+        try (FileChannelPool.Handle hd = pool.acquire(d, FileMetadata.read(d))) {
+            assertTrue(hd.channel().isOpen());
+        }
+        ha.close();
+        hb.close();
+    }
+
+    @Test
+    void resourceStreamsReadIndependently() throws IOException {
+        Path path = file("a.ts", "0123456789");
+        PooledFileResource resource = new PooledFileResource(pool, path, FileMetadata.read(path));
+        try (InputStream first = resource.getInputStream(); InputStream second = resource.getInputStream()) {
+            assertEquals('0', first.read());
+            assertEquals(3, first.skip(3));
+            assertEquals("0123456789", new String(second.readAllBytes()));
+            assertEquals("456789", new String(first.readAllBytes()));
+        }
+        assertEquals(0, pool.inUseCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.videoplayback.videoStream.streaming;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileMetadataCacheTest {
+
+    @TempDir
+    Path root;
+
+    private FileMetadataCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cache = new FileMetadataCache();
+        cache.DIR = root.resolve("videos").toString();
+        cache.HSL_DIR = root.resolve("hls").toString();
+        cache.THUMBNAIL_DIR = root.resolve("thumbnails").toString();
+        ReflectionTestUtils.setField(cache, "maxEntries", 1000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cache.shutdown();
+    }
+
+    @Test
+    void servesFromMemoryUntilInvalidated() throws IOException {
+        Path file = root.resolve("videos").resolve("a.mp4");
+        Files.write(file, new byte[10]);
+        assertEquals(10, cache.get(file).size());
+
+        Files.delete(file);
+        cache.invalidate(file);
+        assertFalse(cache.get(file).exists());
+    }
+
+    @Test
+    void fileWatchPicksUpChanges() throws Exception {
+        Path file = root.resolve("thumbnails").resolve("a_thumb.jpg");
+        assertFalse(cache.get(file).exists());
+
+        Files.write(file, new byte[3]);
+        assertTrue(eventually(() -> cache.get(file).exists()));
+        Files.write(file, new byte[5]);
+        assertTrue(eventually(() -> cache.get(file).size() == 5));
+        Files.delete(file);
+        assertTrue(eventually(() -> !cache.get(file).exists()));
+    }
+
+    @Test
+    void outputDirectoriesComingAndGoingDropTheirEntries() throws Exception {
+        Path playlist = root.resolve("hls").resolve("asset").resolve("720p").resolve("index.m3u8");
+        assertFalse(cache.get(playlist).exists());
+
+        Files.createDirectories(playlist.getParent());
+        Files.writeString(playlist, "#EXTM3U\n");
+        assertTrue(eventually(() -> cache.get(playlist).exists()));
+
+        FileSystemUtils.deleteRecursively(root.resolve("hls").resolve("asset"));
+        assertTrue(eventually(() -> !cache.get(playlist).exists()));
+    }
+
+    @Test
+    void onlyWatchesTheTopLevelDirectories() throws Exception {
+        Files.createDirectories(root.resolve("hls").resolve("asset").resolve("720p"));
+        Thread.sleep(200);
+        assertEquals(3, ((Map<?, ?>) ReflectionTestUtils.getField(cache, "watchedDirs")).size());
+    }
+
+    @Test
+    void invalidatesOutputsOfAnAsset() throws IOException {
+        Path segment = root.resolve("hls").resolve("asset").resolve("segment_000.ts");
+        assertFalse(cache.get(segment).exists());
+        Files.createDirectories(segment.getParent());
+        Files.write(segment, new byte[7]);
+
+        cache.invalidateOutputs("asset");
+        assertEquals(7, cache.get(segment).size());
+    }
+
+    private interface Check {
+        boolean test() throws IOException;
+    }
+
+    private static boolean eventually(Check check) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            if (check.test()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+package com.videoplayback.videoStream.streaming;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileRegionWriterTest {
+
+    private static final long WARMUP_RANGE = 1024 * 1024;
+    private static final long LARGE_RANGE = 512L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void largeRangeDoesNotGrowHeap() throws Exception {
+        Path video = tempDir.resolve("large.mp4");
+        try (RandomAccessFile file = new RandomAccessFile(video.toFile(), "rw")) {
+            file.setLength(LARGE_RANGE + 4096);
+        }
+
+        // warm up so class loading and the JDK's temporary buffers are not counted
+        transfer(video, 0, WARMUP_RANGE);
+
+        long allocated = allocatedBy(() -> assertEquals(LARGE_RANGE, transfer(video, 17, LARGE_RANGE)));
+
+        // copying through a byte[] would allocate at least the whole range; the JDK's own
+        // per-read bookkeeping is the only thing that scales with the range here
+        assertTrue(allocated < LARGE_RANGE / 64,
+                "serving " + LARGE_RANGE + " bytes allocated " + allocated + " bytes on the heap");
+    }
+
+    @Test
+    void fileShorterThanTheRangeAbortsInsteadOfEndingShort() throws Exception {
+        Path video = tempDir.resolve("truncated.mp4");
+        try (RandomAccessFile file = new RandomAccessFile(video.toFile(), "rw")) {
+            file.setLength(1000);
+        }
+
+        // the Content-Length promised 2000 bytes, a clean end after 1000 would pass as complete
+        assertThrows(EOFException.class, () -> transfer(video, 0, 2000));
+    }
+
+    private long transfer(Path path, long position, long count) throws Exception {
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            return FileRegionWriter.transfer(source, position, count, new DiscardingChannel());
+        }
+    }
+
+    private long allocatedBy(ThrowingRunnable action) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        action.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private static class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
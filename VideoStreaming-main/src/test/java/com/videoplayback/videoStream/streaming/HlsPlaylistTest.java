@@ -0,0 +1,38 @@
+package com.videoplayback.videoStream.streaming;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HlsPlaylistTest {
+
+    private static final String GROWING = """
+            #EXTM3U
+            #EXT-X-VERSION:3
+            #EXT-X-TARGETDURATION:10
+            #EXT-X-MEDIA-SEQUENCE:4
+            #EXT-X-PLAYLIST-TYPE:EVENT
+            #EXTINF:10.000000,
+            segment_004.ts
+            #EXTINF:10.000000,
+            segment_005.ts
+            """;
+
+    @Test
+    void countsMediaSequenceFromFirstSegment() {
+        assertEquals(5, HlsPlaylist.lastMediaSequence(GROWING));
+        assertEquals(-1, HlsPlaylist.lastMediaSequence("#EXTM3U\n#EXT-X-TARGETDURATION:10\n"));
+        assertFalse(HlsPlaylist.ended(GROWING));
+        assertTrue(HlsPlaylist.ended(GROWING + "#EXT-X-ENDLIST\n"));
+    }
+
+    @Test
+    void liveTagsOnlyGoIntoMediaPlaylists() {
+        String tagged = HlsPlaylist.withLiveTags(GROWING);
+        assertTrue(tagged.startsWith("#EXTM3U\n#EXT-X-START:TIME-OFFSET=0,PRECISE=YES\n#EXT-X-SERVER-CONTROL:CAN-BLOCK-RELOAD=YES\n"));
+        assertEquals(5, HlsPlaylist.lastMediaSequence(tagged));
+
+        String master = "#EXTM3U\n#EXT-X-STREAM-INF:BANDWIDTH=500000\n240p/index.m3u8\n";
+        assertEquals(master, HlsPlaylist.withLiveTags(master));
+    }
+}
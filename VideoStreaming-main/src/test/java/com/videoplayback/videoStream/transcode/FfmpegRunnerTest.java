@@ -0,0 +1,53 @@
+package com.videoplayback.videoStream.transcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FfmpegRunnerTest {
+
+    @Test
+    void parsesClosingProgressLine() {
+        FfmpegRunner.Stats stats = FfmpegRunner.parseStats(
+                "frame= 7200 fps=412 q=-1.0 Lsize=N/A time=00:04:00.00 bitrate=N/A speed=13.7x");
+        assertEquals(7200, stats.frames());
+        assertEquals(412, stats.fps());
+        assertEquals(13.7, stats.speed());
+    }
+
+    @Test
+    void speedIsOptionalButFramesAreNot() {
+        assertEquals(0, FfmpegRunner.parseStats("frame=    1 fps=0.0 q=2.0 Lsize=N/A time=00:00:00.04").speed());
+        assertNull(FfmpegRunner.parseStats("size=     512kB time=00:00:10.00 bitrate= 419.4kbits/s speed= 201x"));
+    }
+
+    @Test
+    void foldsProgressBlocks() {
+        Map<String, String> block = new HashMap<>();
+        assertNull(FfmpegRunner.progressLine(block, "frame=240"));
+        assertNull(FfmpegRunner.progressLine(block, "fps=59.94"));
+        assertNull(FfmpegRunner.progressLine(block, "out_time_us=10010000"));
+        assertNull(FfmpegRunner.progressLine(block, "speed=2.5x"));
+        FfmpegRunner.Progress progress = FfmpegRunner.progressLine(block, "progress=continue");
+        assertEquals(10.01, progress.outTimeSeconds(), 1e-9);
+        assertEquals(240, progress.frames());
+        assertEquals(59.94, progress.fps());
+        assertEquals(2.5, progress.speed());
+        assertFalse(progress.end());
+        assertTrue(block.isEmpty());
+    }
+
+    @Test
+    void notYetKnownValuesCountAsZero() {
+        Map<String, String> block = new HashMap<>();
+        FfmpegRunner.progressLine(block, "out_time_us=N/A");
+        FfmpegRunner.progressLine(block, "speed=N/A");
+        FfmpegRunner.Progress progress = FfmpegRunner.progressLine(block, "progress=end");
+        assertEquals(0, progress.outTimeSeconds());
+        assertEquals(0, progress.speed());
+        assertTrue(progress.end());
+    }
+}
@@ -0,0 +1,87 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.videoplayback.videoStream.Entity.Video;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wall-clock time of one transcode against the split/encode/stitch mode on a synthetic clip.
+ * Needs ffmpeg on the PATH: {@code mvn test -Dtest=HlsTranscoderBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HlsTranscoderBenchmark {
+    private static final int CLIP_SECONDS = 240;
+    private static final String LADDER = "240:400:64,480:1200:96,720:2800:128";
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void chunkedTranscodeScalesWithCores() throws Exception {
+        FfmpegRunner ffmpegRunner = new FfmpegRunner();
+        Path clip = workDir.resolve("clip.mp4");
+        ffmpegRunner.run(List.of(
+                "ffmpeg", "-y", "-v", "error",
+                "-f", "lavfi", "-i", "testsrc2=size=1280x720:rate=30:duration=" + CLIP_SECONDS,
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=" + CLIP_SECONDS,
+                // MPEG-4 part 2 so the clip takes the full transcode path rather than the remux one
+                "-c:v", "mpeg4", "-q:v", "3", "-c:a", "aac", clip.toString()
+        ), "Synthetic clip");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        long whole = time(transcoder(ffmpegRunner, 0, cores), clip, "whole");
+        long chunked = time(transcoder(ffmpegRunner, 30, cores), clip, "chunked");
+
+        System.out.printf("cores=%d whole=%dms chunked=%dms speedup=%.2fx%n",
+                cores, whole, chunked, (double) whole / chunked);
+    }
+
+    private long time(HlsTranscoder transcoder, Path clip, String videoId) throws Exception {
+        Video video = Video.builder().videoId(videoId).filePath(clip.toString()).build();
+        long started = System.nanoTime();
+        transcoder.transcode(video);
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+
+        String playlist = Files.readString(workDir.resolve("hls").resolve(videoId).resolve("720p").resolve(HlsTranscoder.MEDIA_PLAYLIST));
+        assertTrue(playlist.contains("#EXT-X-ENDLIST"));
+        assertTrue(Files.exists(workDir.resolve("hls").resolve(videoId).resolve(HlsTranscoder.MASTER_PLAYLIST)));
+        return elapsed;
+    }
+
+    private HlsTranscoder transcoder(FfmpegRunner ffmpegRunner, double chunkSeconds, int cores) throws IOException {
+        MediaProbe mediaProbe = new MediaProbe();
+        ReflectionTestUtils.setField(mediaProbe, "ffmpegRunner", ffmpegRunner);
+        ReflectionTestUtils.setField(mediaProbe, "objectMapper", new ObjectMapper());
+        ThumbnailGenerator thumbnailGenerator = new ThumbnailGenerator();
+        ReflectionTestUtils.setField(thumbnailGenerator, "ffmpegRunner", ffmpegRunner);
+        thumbnailGenerator.THUMBNAIL_DIR = workDir.resolve("thumbnails").toString();
+        thumbnailGenerator.init();
+
+        HlsTranscoder transcoder = new HlsTranscoder();
+        ReflectionTestUtils.setField(transcoder, "ffmpegRunner", ffmpegRunner);
+        ReflectionTestUtils.setField(transcoder, "mediaProbe", mediaProbe);
+        ReflectionTestUtils.setField(transcoder, "thumbnailGenerator", thumbnailGenerator);
+        ReflectionTestUtils.setField(transcoder, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(transcoder, "progressTracker", new TranscodeProgressTracker());
+        transcoder.HSL_DIR = workDir.resolve("hls").toString();
+        transcoder.THREADS_PER_JOB = cores;
+        transcoder.LADDER = LADDER;
+        transcoder.PACKAGING = "ts";
+        transcoder.CHUNK_SECONDS = chunkSeconds;
+        transcoder.CHUNK_MIN_DURATION = 0;
+        transcoder.STALL_TIMEOUT_SECONDS = 120;
+        transcoder.init();
+        return transcoder;
+    }
+}
@@ -0,0 +1,57 @@
+package com.videoplayback.videoStream.transcode;
+
+import com.videoplayback.videoStream.Entity.TranscodeStrategy;
+import com.videoplayback.videoStream.Entity.Video;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaInfoTest {
+
+    @Test
+    void choosesStrategyFromCodecs() {
+        assertEquals(TranscodeStrategy.REMUX, source("h264", "yuv420p", "aac", 0, 2).strategy(10));
+        assertEquals(TranscodeStrategy.REMUX, source("h264", "yuvj420p", null, 0, 2).strategy(10));
+        assertEquals(TranscodeStrategy.AUDIO_TRANSCODE, source("h264", "yuv420p", "opus", 0, 2).strategy(10));
+        assertEquals(TranscodeStrategy.FULL_TRANSCODE, source("hevc", "yuv420p", "aac", 0, 2).strategy(10));
+        assertEquals(TranscodeStrategy.FULL_TRANSCODE, source("h264", "yuv420p10le", "aac", 0, 2).strategy(10));
+    }
+
+    @Test
+    void rotatedOrSparseKeyframeSourcesAreEncoded() {
+        // MPEG-TS cannot carry the rotation of a portrait phone recording
+        assertEquals(TranscodeStrategy.FULL_TRANSCODE, source("h264", "yuv420p", "aac", 90, 2).strategy(10));
+        // segments could not be cut anywhere near the target length
+        assertEquals(TranscodeStrategy.FULL_TRANSCODE, source("h264", "yuv420p", "aac", 0, 30).strategy(10));
+    }
+
+    @Test
+    void uploadProbeLeavesTheStrategyToTheKeyframeScan() {
+        // the upload only probes streams, an unmeasured interval never allows copying
+        MediaInfo probed = source("h264", "yuv420p", "aac", 0, 0);
+        assertEquals(TranscodeStrategy.FULL_TRANSCODE, probed.strategy(10));
+        assertEquals(TranscodeStrategy.REMUX, probed.withKeyframeInterval(2).strategy(10));
+    }
+
+    @Test
+    void roundTripsThroughVideo() {
+        MediaInfo info = source("h264", "yuv420p", null, 0, 2);
+        Video video = new Video();
+        assertNull(MediaInfo.of(video));
+        info.applyTo(video);
+        assertEquals(info, MediaInfo.of(video));
+    }
+
+    @Test
+    void keyframeIntervalIsTheLongestGap() {
+        assertEquals(4.0, MediaProbe.keyframeInterval(List.of(0.0, 2.0, 6.0, 8.0), 10.0), 1e-9);
+        assertEquals(120.0, MediaProbe.keyframeInterval(List.of(0.0), 120.0), 1e-9);
+    }
+
+    private static MediaInfo source(String videoCodec, String pixelFormat, String audioCodec,
+                                    int rotation, double keyframeInterval) {
+        return new MediaInfo(1920, 1080, rotation, 60, 4_000_000, videoCodec, pixelFormat, audioCodec, keyframeInterval);
+    }
+}
@@ -0,0 +1,126 @@
+package com.videoplayback.videoStream.transcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistStitcherTest {
+
+    @Test
+    void joinsChunkPlaylistsInOrder() {
+        String first = """
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-TARGETDURATION:10
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXTINF:10.000000,
+                segment_000_000.ts
+                #EXTINF:2.500000,
+                segment_000_001.ts
+                #EXT-X-ENDLIST
+                """;
+        String second = """
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-TARGETDURATION:11
+                #EXTINF:10.400000,
+                ../../720p/segment_001_000.ts
+                #EXT-X-ENDLIST
+                """;
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-TARGETDURATION:11
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXT-X-PLAYLIST-TYPE:EVENT
+                #EXTINF:10.000000,
+                segment_000_000.ts
+                #EXTINF:2.500000,
+                segment_000_001.ts
+                #EXT-X-DISCONTINUITY
+                #EXTINF:10.400000,
+                segment_001_000.ts
+                #EXT-X-ENDLIST
+                """, PlaylistStitcher.stitch(List.of(first, second), true));
+    }
+
+    @Test
+    void keepsInitSectionAndByteRangesOfFragmentedMp4Chunks() {
+        String first = """
+                #EXTM3U
+                #EXT-X-VERSION:7
+                #EXT-X-TARGETDURATION:10
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXT-X-PLAYLIST-TYPE:EVENT
+                #EXT-X-MAP:URI="media_000.mp4",BYTERANGE="800@0"
+                #EXTINF:10.000000,
+                #EXT-X-BYTERANGE:51200@800
+                media_000.mp4
+                #EXT-X-ENDLIST
+                """;
+        String second = """
+                #EXTM3U
+                #EXT-X-VERSION:7
+                #EXT-X-TARGETDURATION:10
+                #EXT-X-MAP:URI="../../480p/media_001.mp4",BYTERANGE="790@0"
+                #EXTINF:9.000000,
+                #EXT-X-BYTERANGE:40000@790
+                ../../480p/media_001.mp4
+                #EXT-X-ENDLIST
+                """;
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:7
+                #EXT-X-TARGETDURATION:10
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXT-X-PLAYLIST-TYPE:EVENT
+                #EXT-X-MAP:URI="media_000.mp4",BYTERANGE="800@0"
+                #EXTINF:10.000000,
+                #EXT-X-BYTERANGE:51200@800
+                media_000.mp4
+                #EXT-X-DISCONTINUITY
+                #EXT-X-MAP:URI="media_001.mp4",BYTERANGE="790@0"
+                #EXTINF:9.000000,
+                #EXT-X-BYTERANGE:40000@790
+                media_001.mp4
+                #EXT-X-ENDLIST
+                """, PlaylistStitcher.stitch(List.of(first, second), true));
+    }
+
+    @Test
+    void marksEveryChunkBoundaryOnlyOnce() {
+        List<String> chunks = List.of(0, 1, 2).stream().map(index -> """
+                #EXTM3U
+                #EXT-X-TARGETDURATION:10
+                #EXTINF:10.000000,
+                segment_%1$03d_000.ts
+                #EXTINF:10.000000,
+                segment_%1$03d_001.ts
+                #EXT-X-ENDLIST
+                """.formatted(index)).toList();
+
+        String stitched = PlaylistStitcher.stitch(chunks, true);
+
+        assertEquals(2, stitched.split("#EXT-X-DISCONTINUITY", -1).length - 1);
+        assertTrue(stitched.contains("segment_000_001.ts\n#EXT-X-DISCONTINUITY\n#EXTINF:10.000000,\nsegment_001_000.ts"));
+        assertTrue(stitched.contains("segment_001_001.ts\n#EXT-X-DISCONTINUITY\n#EXTINF:10.000000,\nsegment_002_000.ts"));
+    }
+
+    @Test
+    void unfinishedPlaylistHasNoEndList() {
+        String chunk = """
+                #EXTM3U
+                #EXT-X-TARGETDURATION:10
+                #EXTINF:10.000000,
+                segment_000_000.ts
+                #EXT-X-ENDLIST
+                """;
+        String stitched = PlaylistStitcher.stitch(List.of(chunk), false);
+        assertTrue(stitched.endsWith("segment_000_000.ts\n"));
+        assertFalse(stitched.contains("#EXT-X-ENDLIST"));
+    }
+}
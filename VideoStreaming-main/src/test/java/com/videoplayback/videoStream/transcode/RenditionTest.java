@@ -0,0 +1,42 @@
+package com.videoplayback.videoStream.transcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenditionTest {
+
+    private static final List<Rendition> LADDER = Rendition.parseLadder("720:2800:128, 240:400:64,480:1200:96");
+
+    @Test
+    void parsesAndSortsLadder() {
+        assertEquals(List.of("240p", "480p", "720p"), LADDER.stream().map(Rendition::name).toList());
+        assertEquals(new Rendition("720p", 720, 2800, 128), LADDER.get(2));
+        assertThrows(IllegalArgumentException.class, () -> Rendition.parseLadder("720:2800"));
+    }
+
+    @Test
+    void skipsStepsAboveSourceResolution() {
+        assertEquals(List.of("240p", "480p"),
+                Rendition.forSource(LADDER, source(854, 480)).stream().map(Rendition::name).toList());
+
+        List<Rendition> tiny = Rendition.forSource(LADDER, source(320, 180));
+        assertEquals(1, tiny.size());
+        assertEquals(180, tiny.get(0).height());
+        assertEquals(400, tiny.get(0).videoKbps());
+    }
+
+    private static MediaInfo source(int width, int height) {
+        return new MediaInfo(width, height, 0, 60, 4_000_000, "h264", "yuv420p", "aac", 2);
+    }
+
+    @Test
+    void keepsAspectRatioWithEvenDimensions() {
+        Rendition p480 = LADDER.get(1);
+        assertArrayEquals(new int[]{852, 480}, p480.outputSize(source(1920, 1080)));
+        // portrait phone recording: the short side is the width
+        assertArrayEquals(new int[]{480, 852}, p480.outputSize(source(1080, 1920)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.videoplayback.videoStream.transcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailGeneratorTest {
+
+    @Test
+    void pointsEveryIntervalAtItsTile() {
+        // 2x2 tiles per sheet, 160x90 each: the fifth tile starts the second sheet
+        String track = ThumbnailGenerator.spriteTrack("abc", 22.5, 5, 160, 90, 2, 2);
+
+        List<String> cues = List.of(track.split("\n\n"));
+        assertEquals("WEBVTT", cues.get(0));
+        assertEquals(6, cues.size());
+        assertEquals("00:00:00.000 --> 00:00:05.000\nabc_sprite_000.webp#xywh=0,0,160,90", cues.get(1));
+        assertEquals("00:00:15.000 --> 00:00:20.000\nabc_sprite_000.webp#xywh=160,90,160,90", cues.get(4));
+        // the last cue ends with the video
+        assertEquals("00:00:20.000 --> 00:00:22.500\nabc_sprite_001.webp#xywh=0,0,160,90\n", cues.get(5));
+    }
+
+    @Test
+    void namesEveryFileAfterTheOutputKey() {
+        String thumbnail = ThumbnailGenerator.fileName("abc");
+        assertTrue(ThumbnailGenerator.isVideoThumbnail(thumbnail));
+        assertEquals("abc", ThumbnailGenerator.outputKeyOf(thumbnail));
+        assertEquals("abc_thumb_320.webp", ThumbnailGenerator.sizedFileName("abc", 320));
+        assertEquals("abc_sprite_012.webp", ThumbnailGenerator.spriteFileName("abc", 12));
+        assertEquals("abc_sprites.vtt", ThumbnailGenerator.spriteTrackName("abc"));
+    }
+
+    @Test
+    void findsTheOutputKeyOfEveryPreviewFile() {
+        assertEquals("abc", ThumbnailGenerator.ownerOf(ThumbnailGenerator.fileName("abc")));
+        assertEquals("abc", ThumbnailGenerator.ownerOf(ThumbnailGenerator.sizedFileName("abc", 320)));
+        assertEquals("abc", ThumbnailGenerator.ownerOf(ThumbnailGenerator.spriteFileName("abc", 12)));
+        assertEquals("abc", ThumbnailGenerator.ownerOf(ThumbnailGenerator.spriteTrackName("abc")));
+        assertNull(ThumbnailGenerator.ownerOf("abc.png"));
+    }
+
+    @Test
+    void picksSmallestSizeAtLeastAsWide() {
+        ThumbnailGenerator generator = new ThumbnailGenerator();
+        generator.sizes = ThumbnailGenerator.parseSizes("640, 160,320");
+        assertEquals(List.of(160, 320, 640), generator.sizes());
+        assertEquals(320, (int) generator.sizeFor(200));
+        assertEquals(160, (int) generator.sizeFor(160));
+        assertNull(generator.sizeFor(1280));
+    }
+}
@@ -0,0 +1,35 @@
+package com.videoplayback.videoStream.transcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscodeChunkTest {
+
+    @Test
+    void cutsOnFirstKeyframeAfterChunkLength() {
+        List<Double> keyframes = List.of(0.0, 25.0, 50.0, 62.5, 75.0, 100.0, 125.0, 150.0, 175.0);
+        List<TranscodeChunk> chunks = TranscodeChunk.plan(keyframes, 190.0, 60.0);
+
+        assertEquals(List.of(
+                new TranscodeChunk(0, 0.0, 62.5),
+                new TranscodeChunk(1, 62.5, 62.5),
+                new TranscodeChunk(2, 125.0, 65.0)
+        ), chunks);
+    }
+
+    @Test
+    void shortTailIsMergedIntoLastChunk() {
+        // a keyframe at 120 would leave a 10 second chunk at the end
+        List<TranscodeChunk> chunks = TranscodeChunk.plan(List.of(0.0, 60.0, 120.0), 130.0, 60.0);
+        assertEquals(2, chunks.size());
+        assertEquals(70.0, chunks.get(1).duration(), 1e-9);
+    }
+
+    @Test
+    void sourceWithoutLaterKeyframesStaysWhole() {
+        assertEquals(List.of(new TranscodeChunk(0, 0.0, 600.0)), TranscodeChunk.plan(List.of(0.0), 600.0, 60.0));
+    }
+}